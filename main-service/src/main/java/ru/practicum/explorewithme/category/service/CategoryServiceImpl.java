@@ -11,6 +11,8 @@ import ru.practicum.explorewithme.category.dto.NewCategoryDto;
 import ru.practicum.explorewithme.category.mapper.CategoryMapper;
 import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.compilation.service.PinnedCompilationCache;
+import ru.practicum.explorewithme.event.service.EventDetailCache;
 import ru.practicum.explorewithme.exception.NotFoundException;
 
 import java.util.List;
@@ -23,6 +25,8 @@ import java.util.stream.Collectors;
 public class CategoryServiceImpl implements CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final EventDetailCache eventDetailCache;
+    private final PinnedCompilationCache pinnedCompilationCache;
 
     @Override
     @Transactional
@@ -50,6 +54,8 @@ public class CategoryServiceImpl implements CategoryService {
                 .orElseThrow(() -> new NotFoundException("Category not found: " + catId));
         category.setName(categoryDto.getName());
         Category updated = categoryRepository.save(category);
+        eventDetailCache.invalidateCategory(catId);
+        pinnedCompilationCache.invalidate();
         log.info("Updated category: {}", updated);
         return categoryMapper.toDto(updated);
     }
@@ -4,11 +4,9 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import ru.practicum.explorewithme.compilation.dto.CompilationDto;
 import ru.practicum.explorewithme.compilation.model.Compilation;
-import ru.practicum.explorewithme.event.mapper.EventMapper;
 
-@Mapper(componentModel = "spring", uses = EventMapper.class)
+@Mapper(componentModel = "spring")
 public interface CompilationMapper {
-    @Mapping(target = "events", source = "events")
+    @Mapping(target = "events", ignore = true)
     CompilationDto toDto(Compilation compilation);
 }
-
@@ -0,0 +1,23 @@
+package ru.practicum.explorewithme.compilation.model;
+
+import lombok.Getter;
+import ru.practicum.explorewithme.event.model.EventShortView;
+
+import java.time.LocalDateTime;
+
+/**
+ * An event of a compilation, selected together with the membership in one constructor-expression query.
+ */
+@Getter
+public class CompilationEventView {
+    private final Long compilationId;
+    private final EventShortView event;
+
+    public CompilationEventView(Long compilationId, Long id, String annotation, Long categoryId,
+                                String categoryName, Long confirmedRequests, LocalDateTime eventDate,
+                                Long initiatorId, String initiatorName, Boolean paid, String title) {
+        this.compilationId = compilationId;
+        this.event = new EventShortView(id, annotation, categoryId, categoryName, confirmedRequests, eventDate,
+                initiatorId, initiatorName, paid, title);
+    }
+}
@@ -1,13 +1,27 @@
 package ru.practicum.explorewithme.compilation.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.explorewithme.compilation.model.Compilation;
+import ru.practicum.explorewithme.compilation.model.CompilationEventView;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface CompilationRepository extends JpaRepository<Compilation, Long> {
-    Page<Compilation> findByPinned(Boolean pinned, Pageable pageable);
-}
+    Slice<Compilation> findAllBy(Pageable pageable);
 
+    Slice<Compilation> findByPinned(Boolean pinned, Pageable pageable);
+
+    @Query("SELECT new ru.practicum.explorewithme.compilation.model.CompilationEventView(" +
+           "comp.id, e.id, e.annotation, c.id, c.name, e.confirmedRequests, e.eventDate, u.id, u.name, " +
+           "e.paid, e.title) " +
+           "FROM Compilation comp JOIN comp.events e JOIN e.category c JOIN e.initiator u " +
+           "WHERE comp.id IN :compilationIds")
+    List<CompilationEventView> findEvents(@Param("compilationIds") Collection<Long> compilationIds);
+}
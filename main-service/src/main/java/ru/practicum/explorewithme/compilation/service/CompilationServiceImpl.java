@@ -4,6 +4,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.compilation.dto.CompilationDto;
@@ -11,14 +12,21 @@ import ru.practicum.explorewithme.compilation.dto.NewCompilationDto;
 import ru.practicum.explorewithme.compilation.dto.UpdateCompilationRequest;
 import ru.practicum.explorewithme.compilation.mapper.CompilationMapper;
 import ru.practicum.explorewithme.compilation.model.Compilation;
+import ru.practicum.explorewithme.compilation.model.CompilationEventView;
 import ru.practicum.explorewithme.compilation.repository.CompilationRepository;
+import ru.practicum.explorewithme.event.dto.EventShortDto;
 import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventShortView;
 import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.service.EventEnricher;
 import ru.practicum.explorewithme.exception.NotFoundException;
 
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,6 +37,8 @@ public class CompilationServiceImpl implements CompilationService {
     private final CompilationRepository compilationRepository;
     private final EventRepository eventRepository;
     private final CompilationMapper compilationMapper;
+    private final EventEnricher eventEnricher;
+    private final PinnedCompilationCache pinnedCompilationCache;
 
     @Override
     @Transactional
@@ -45,8 +55,9 @@ public class CompilationServiceImpl implements CompilationService {
                 .build();
 
         Compilation saved = compilationRepository.save(compilation);
+        pinnedCompilationCache.invalidate();
         log.info("Created compilation: {}", saved);
-        return compilationMapper.toDto(saved);
+        return toDtos(List.of(saved)).get(0);
     }
 
     @Override
@@ -56,6 +67,7 @@ public class CompilationServiceImpl implements CompilationService {
             throw new NotFoundException("Compilation not found: " + compId);
         }
         compilationRepository.deleteById(compId);
+        pinnedCompilationCache.invalidate();
         log.info("Deleted compilation: {}", compId);
     }
 
@@ -77,28 +89,55 @@ public class CompilationServiceImpl implements CompilationService {
         }
 
         Compilation updated = compilationRepository.save(compilation);
+        pinnedCompilationCache.invalidate();
         log.info("Updated compilation: {}", updated);
-        return compilationMapper.toDto(updated);
+        return toDtos(List.of(updated)).get(0);
     }
 
     @Override
     public List<CompilationDto> getCompilations(Boolean pinned, int from, int size) {
-        Pageable pageable = PageRequest.of(from / size, size);
+        Pageable pageable = PageRequest.of(from / size, size, Sort.by("id"));
         if (pinned == null) {
-            return compilationRepository.findAll(pageable).getContent().stream()
-                    .map(compilationMapper::toDto)
-                    .collect(Collectors.toList());
+            return toDtos(compilationRepository.findAllBy(pageable).getContent());
         }
-        return compilationRepository.findByPinned(pinned, pageable).getContent().stream()
-                .map(compilationMapper::toDto)
-                .collect(Collectors.toList());
+        if (pinned) {
+            return pinnedCompilationCache.get(from, size,
+                    () -> toDtos(compilationRepository.findByPinned(true, pageable).getContent()));
+        }
+        return toDtos(compilationRepository.findByPinned(false, pageable).getContent());
     }
 
     @Override
     public CompilationDto getCompilationById(Long compId) {
         Compilation compilation = compilationRepository.findById(compId)
                 .orElseThrow(() -> new NotFoundException("Compilation not found: " + compId));
-        return compilationMapper.toDto(compilation);
+        return toDtos(List.of(compilation)).get(0);
     }
-}
 
+    /**
+     * Reads the events of all compilations in one query and fills in their views with one stats call.
+     */
+    private List<CompilationDto> toDtos(List<Compilation> compilations) {
+        if (compilations.isEmpty()) {
+            return List.of();
+        }
+        List<CompilationEventView> members = compilationRepository.findEvents(compilations.stream()
+                .map(Compilation::getId)
+                .collect(Collectors.toList()));
+        Map<Long, EventShortView> events = new LinkedHashMap<>();
+        members.forEach(member -> events.putIfAbsent(member.getEvent().getId(), member.getEvent()));
+        Map<Long, EventShortDto> eventDtos = eventEnricher.toShortDtosFromViews(events.values()).stream()
+                .collect(Collectors.toMap(EventShortDto::getId, Function.identity()));
+        Map<Long, Set<EventShortDto>> eventsByCompilation = members.stream()
+                .collect(Collectors.groupingBy(CompilationEventView::getCompilationId,
+                        Collectors.mapping(member -> eventDtos.get(member.getEvent().getId()), Collectors.toSet())));
+
+        return compilations.stream()
+                .map(compilation -> {
+                    CompilationDto dto = compilationMapper.toDto(compilation);
+                    dto.setEvents(eventsByCompilation.getOrDefault(compilation.getId(), Set.of()));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.explorewithme.compilation.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.compilation.dto.CompilationDto;
+import ru.practicum.explorewithme.transaction.AfterCommit;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Caches pages of pinned compilations. Any change to a compilation, event or category drops every page, while views
+ * and confirmed requests of the events inside, which change without one, expire after a short TTL.
+ */
+@Component
+public class PinnedCompilationCache {
+    private final Cache<Page, List<CompilationDto>> pages;
+
+    public PinnedCompilationCache(@Value("${compilation-cache.max-size:1000}") long maxSize,
+                                  @Value("${compilation-cache.expire-after-write:10s}") Duration expireAfterWrite,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, pages, "compilations.pinned"));
+    }
+
+    public List<CompilationDto> get(int from, int size, Supplier<List<CompilationDto>> loader) {
+        return pages.get(new Page(from, size), page -> List.copyOf(loader.get()));
+    }
+
+    public void invalidate() {
+        AfterCommit.runAfterCommit(pages::invalidateAll);
+    }
+
+    @lombok.Value
+    private static class Page {
+        int from;
+        int size;
+    }
+}
@@ -37,9 +37,10 @@ public class AdminEventController {
                                          @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeStart,
                                          @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime rangeEnd,
                                          @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                         @RequestParam(defaultValue = "10") @Positive int size) {
-        log.info("Getting events by admin: users={}, states={}, categories={}, from={}, size={}", users, states, categories, from, size);
-        return eventService.getEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size);
+                                         @RequestParam(defaultValue = "10") @Positive int size,
+                                         @RequestParam(required = false) String after) {
+        log.info("Getting events by admin: users={}, states={}, categories={}, from={}, size={}, after={}", users, states, categories, from, size, after);
+        return eventService.getEventsByAdmin(users, states, categories, rangeStart, rangeEnd, from, size, after);
     }
 
     @PatchMapping("/{eventId}")
@@ -40,9 +40,10 @@ public class PrivateEventController {
     @GetMapping
     public List<EventShortDto> getEvents(@PathVariable Long userId,
                                           @RequestParam(defaultValue = "0") @PositiveOrZero int from,
-                                          @RequestParam(defaultValue = "10") @Positive int size) {
-        log.info("Getting events for user {}: from={}, size={}", userId, from, size);
-        return eventService.getEventsByUser(userId, from, size);
+                                          @RequestParam(defaultValue = "10") @Positive int size,
+                                          @RequestParam(required = false) String after) {
+        log.info("Getting events for user {}: from={}, size={}, after={}", userId, from, size, after);
+        return eventService.getEventsByUser(userId, from, size, after);
     }
 
     @PostMapping
@@ -70,9 +71,11 @@ public class PrivateEventController {
 
     @GetMapping("/{eventId}/requests")
     public List<ParticipationRequestDto> getEventParticipants(@PathVariable Long userId,
-                                                                @PathVariable Long eventId) {
-        log.info("Getting requests for event {} by user {}", eventId, userId);
-        return requestService.getEventRequests(userId, eventId);
+                                                                @PathVariable Long eventId,
+                                                                @RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) @Positive Integer size) {
+        log.info("Getting requests for event {} by user {}: after={}, size={}", eventId, userId, after, size);
+        return requestService.getEventRequests(userId, eventId, after, size);
     }
 
     @PatchMapping("/{eventId}/requests")
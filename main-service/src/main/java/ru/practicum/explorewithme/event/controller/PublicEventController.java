@@ -4,15 +4,20 @@ import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.explorewithme.event.dto.EventFullDto;
 import ru.practicum.explorewithme.event.dto.EventShortDto;
 import ru.practicum.explorewithme.event.service.EventService;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -33,20 +38,32 @@ public class PublicEventController {
                                           @RequestParam(required = false) String sort,
                                           @RequestParam(defaultValue = "0") Integer from,
                                           @RequestParam(defaultValue = "10") Integer size,
+                                          @RequestParam(required = false) String after,
                                           HttpServletRequest request) {
-        log.info("Getting public events: text={}, categories={}, paid={}, from={}, size={}",
-                text, categories, paid, from, size);
+        log.info("Getting public events: text={}, categories={}, paid={}, from={}, size={}, after={}",
+                text, categories, paid, from, size, after);
         String ip = request.getRemoteAddr();
         String uri = request.getRequestURI();
-        return eventService.getPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size, ip, uri);
+        return eventService.getPublicEvents(text, categories, paid, rangeStart, rangeEnd, onlyAvailable, sort, from, size, after, ip, uri);
     }
 
     @GetMapping("/{id}")
-    public EventFullDto getEventById(@PathVariable Long id, HttpServletRequest request) {
+    public ResponseEntity<EventFullDto> getEventById(@PathVariable Long id, HttpServletRequest request,
+                                                     WebRequest webRequest) {
         log.info("Getting public event: {}", id);
         String ip = request.getRemoteAddr();
         String uri = request.getRequestURI();
-        return eventService.getPublicEventById(id, ip, uri);
+        EventFullDto event = eventService.getPublicEventById(id, ip, uri);
+
+        String etag = "\"" + DigestUtils.md5DigestAsHex(event.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        // no-cache makes caches revalidate every time, so each view still reaches the stats
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(event);
     }
 }
 
@@ -0,0 +1,34 @@
+package ru.practicum.explorewithme.event.dto;
+
+import lombok.Value;
+import ru.practicum.explorewithme.exception.BadRequestException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position after which the next page of events starts, written as {@code eventDate,id}
+ * of the last event of the previous page, e.g. {@code 2030-01-01 10:00:00,42}.
+ * Pages read with a cursor are ordered by event date and id; {@code 1970-01-01 00:00:00,0} starts from the first event.
+ */
+@Value
+public class EventCursor {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    LocalDateTime eventDate;
+    Long id;
+
+    public static EventCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        int separator = value.lastIndexOf(',');
+        try {
+            return new EventCursor(LocalDateTime.parse(value.substring(0, separator).trim(), FORMATTER),
+                    Long.parseLong(value.substring(separator + 1).trim()));
+        } catch (IndexOutOfBoundsException | DateTimeParseException | NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor, expected eventDate,id: " + value);
+        }
+    }
+}
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class EventFullDto {
     private Long id;
     private String annotation;
@@ -39,6 +39,7 @@ public class EventFullDto {
     private LocalDateTime publishedOn;
 
     private Boolean requestModeration;
+    private Boolean queuedAdmission;
     private EventState state;
     private String title;
     private Long views;
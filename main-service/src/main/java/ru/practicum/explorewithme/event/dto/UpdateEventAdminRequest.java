@@ -38,6 +38,8 @@ public class UpdateEventAdminRequest {
 
     private Boolean requestModeration;
 
+    private Boolean queuedAdmission;
+
     private StateAction stateAction;
 
     @Size(min = 3, max = 120)
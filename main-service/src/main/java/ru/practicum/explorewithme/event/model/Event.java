@@ -64,12 +64,22 @@ public class Event {
     @Column(name = "participant_limit", nullable = false)
     private Integer participantLimit;
 
+    // Changed only through EventRepository.addConfirmedRequests so concurrent updates are never lost
+    @Builder.Default
+    @Column(name = "confirmed_requests", nullable = false, insertable = false, updatable = false)
+    private Long confirmedRequests = 0L;
+
     @Column(name = "published_on")
     private LocalDateTime publishedOn;
 
     @Column(name = "request_moderation", nullable = false)
     private Boolean requestModeration;
 
+    // Confirms automatic requests through AdmissionQueue instead of on the request thread
+    @Builder.Default
+    @Column(name = "queued_admission", nullable = false)
+    private Boolean queuedAdmission = false;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "state", nullable = false, length = 20)
     private EventState state;
@@ -0,0 +1,25 @@
+package ru.practicum.explorewithme.event.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns of an event needed for {@code EventShortDto}, selected by constructor expression
+ * so list queries neither load the description nor hydrate managed entities.
+ */
+@Getter
+@AllArgsConstructor
+public class EventShortView {
+    private final Long id;
+    private final String annotation;
+    private final Long categoryId;
+    private final String categoryName;
+    private final Long confirmedRequests;
+    private final LocalDateTime eventDate;
+    private final Long initiatorId;
+    private final String initiatorName;
+    private final Boolean paid;
+    private final String title;
+}
@@ -0,0 +1,32 @@
+package ru.practicum.explorewithme.event.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "event_views")
+public class EventViews {
+    @Id
+    @Column(name = "event_id")
+    private Long eventId;
+
+    @Column(name = "views", nullable = false)
+    private Long views;
+
+    @Column(name = "refreshed_on", nullable = false)
+    private LocalDateTime refreshedOn;
+}
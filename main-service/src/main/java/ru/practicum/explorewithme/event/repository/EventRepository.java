@@ -1,12 +1,14 @@
 package ru.practicum.explorewithme.event.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventShortView;
 import ru.practicum.explorewithme.event.model.EventState;
 
 import java.time.LocalDateTime;
@@ -14,47 +16,60 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EventRepository extends JpaRepository<Event, Long> {
-    Page<Event> findByInitiatorId(Long userId, Pageable pageable);
+public interface EventRepository extends JpaRepository<Event, Long>, EventSearch {
+    // Keyset condition for cursor paging over (eventDate, id); a null afterDate disables it
+    String AFTER_CURSOR = "AND (CAST(:afterDate AS timestamp) IS NULL " +
+                          "OR (e.eventDate, e.id) > (:afterDate, :afterId))";
+
+    String SHORT_VIEW = "SELECT new ru.practicum.explorewithme.event.model.EventShortView(" +
+                        "e.id, e.annotation, c.id, c.name, e.confirmedRequests, e.eventDate, u.id, u.name, " +
+                        "e.paid, e.title) " +
+                        "FROM Event e JOIN e.category c JOIN e.initiator u ";
+
+    @Query(SHORT_VIEW + "WHERE u.id = :userId " + AFTER_CURSOR)
+    Slice<EventShortView> findByInitiatorId(@Param("userId") Long userId,
+                                   @Param("afterDate") LocalDateTime afterDate,
+                                   @Param("afterId") Long afterId,
+                                   Pageable pageable);
 
     Optional<Event> findByIdAndInitiatorId(Long eventId, Long userId);
 
+    boolean existsByIdAndInitiatorId(Long eventId, Long userId);
+
     @Query("SELECT e FROM Event e " +
            "WHERE (:users IS NULL OR e.initiator.id IN :users) " +
            "AND (:states IS NULL OR e.state IN :states) " +
            "AND (:categories IS NULL OR e.category.id IN :categories) " +
            "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.eventDate >= :rangeStart) " +
-           "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd)")
-    Page<Event> findEventsByAdmin(@Param("users") List<Long> users,
+           "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd) " + AFTER_CURSOR)
+    Slice<Event> findEventsByAdmin(@Param("users") List<Long> users,
                                    @Param("states") List<EventState> states,
                                    @Param("categories") List<Long> categories,
                                    @Param("rangeStart") LocalDateTime rangeStart,
                                    @Param("rangeEnd") LocalDateTime rangeEnd,
+                                   @Param("afterDate") LocalDateTime afterDate,
+                                   @Param("afterId") Long afterId,
                                    Pageable pageable);
 
-    @Query("SELECT e FROM Event e " +
-           "WHERE e.state = 'PUBLISHED' " +
-           "AND (COALESCE(:text, '') = '' OR (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%')) " +
-           "OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%')))) " +
-           "AND (:categories IS NULL OR e.category.id IN :categories) " +
-           "AND (:paid IS NULL OR e.paid = :paid) " +
-           "AND (CAST(:rangeStart AS timestamp) IS NULL OR e.eventDate >= :rangeStart) " +
-           "AND (CAST(:rangeEnd AS timestamp) IS NULL OR e.eventDate <= :rangeEnd)")
-    Page<Event> findPublicEvents(@Param("text") String text,
-                                  @Param("categories") List<Long> categories,
-                                  @Param("paid") Boolean paid,
-                                  @Param("rangeStart") LocalDateTime rangeStart,
-                                  @Param("rangeEnd") LocalDateTime rangeEnd,
-                                  Pageable pageable);
-
     Optional<Event> findByIdAndState(Long id, EventState state);
 
-    @Query("SELECT COUNT(r) FROM Request r WHERE r.event.id = :eventId AND r.status = 'CONFIRMED'")
-    Long countConfirmedRequests(@Param("eventId") Long eventId);
+    @Query("SELECT e.id FROM Event e WHERE e.state = 'PUBLISHED' AND e.id > :afterId ORDER BY e.id")
+    List<Long> findPublishedIds(@Param("afterId") long afterId, Pageable pageable);
 
-    @Query("SELECT r.event.id as eventId, COUNT(r) as count FROM Request r " +
-           "WHERE r.event.id IN :eventIds AND r.status = 'CONFIRMED' " +
-           "GROUP BY r.event.id")
-    List<Object[]> countConfirmedRequestsByEventIds(@Param("eventIds") List<Long> eventIds);
-}
+    @Query("SELECT e.confirmedRequests FROM Event e WHERE e.id = :eventId")
+    Optional<Long> findConfirmedRequests(@Param("eventId") Long eventId);
 
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :delta WHERE e.id = :eventId")
+    int addConfirmedRequests(@Param("eventId") Long eventId, @Param("delta") long delta);
+
+    /**
+     * Takes {@code count} participant slots in a single statement, or none if fewer are free.
+     * Returns 1 if the slots were taken and 0 otherwise.
+     */
+    @Modifying
+    @Query("UPDATE Event e SET e.confirmedRequests = e.confirmedRequests + :count " +
+           "WHERE e.id = :eventId " +
+           "AND (e.participantLimit = 0 OR e.confirmedRequests + :count <= e.participantLimit)")
+    int reserveSlots(@Param("eventId") Long eventId, @Param("count") long count);
+}
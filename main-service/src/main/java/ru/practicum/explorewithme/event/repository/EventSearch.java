@@ -0,0 +1,19 @@
+package ru.practicum.explorewithme.event.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import ru.practicum.explorewithme.event.model.EventShortView;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EventSearch {
+
+    /**
+     * Lists published events matching the filters that are set; a null filter, or a false {@code onlyAvailable},
+     * adds no condition at all. A null {@code afterDate} disables the keyset condition.
+     */
+    Slice<EventShortView> findPublicEvents(String text, List<Long> categories, Boolean paid,
+                                           LocalDateTime rangeStart, LocalDateTime rangeEnd, boolean onlyAvailable,
+                                           LocalDateTime afterDate, Long afterId, Pageable pageable);
+}
@@ -0,0 +1,94 @@
+package ru.practicum.explorewithme.event.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import ru.practicum.explorewithme.event.model.EventShortView;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Builds the public listing query from the filters that are actually set. Parameter checks such as
+ * {@code :text = '' OR ...} would keep PostgreSQL from using the partial and trigram indexes on events.
+ */
+class EventSearchImpl implements EventSearch {
+    private final EntityManager entityManager;
+
+    EventSearchImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Slice<EventShortView> findPublicEvents(String text, List<Long> categories, Boolean paid,
+                                                  LocalDateTime rangeStart, LocalDateTime rangeEnd,
+                                                  boolean onlyAvailable, LocalDateTime afterDate, Long afterId,
+                                                  Pageable pageable) {
+        StringBuilder jpql = new StringBuilder(EventRepository.SHORT_VIEW)
+                .append("LEFT JOIN EventViews v ON v.eventId = e.id WHERE e.state = 'PUBLISHED'");
+        Map<String, Object> params = new HashMap<>();
+        if (text != null && !text.isEmpty()) {
+            jpql.append(" AND (LOWER(e.annotation) LIKE LOWER(CONCAT('%', :text, '%'))")
+                    .append(" OR LOWER(e.description) LIKE LOWER(CONCAT('%', :text, '%')))");
+            params.put("text", text);
+        }
+        if (categories != null && !categories.isEmpty()) {
+            jpql.append(" AND c.id IN :categories");
+            params.put("categories", categories);
+        }
+        if (paid != null) {
+            jpql.append(" AND e.paid = :paid");
+            params.put("paid", paid);
+        }
+        if (rangeStart != null) {
+            jpql.append(" AND e.eventDate >= :rangeStart");
+            params.put("rangeStart", rangeStart);
+        }
+        if (rangeEnd != null) {
+            jpql.append(" AND e.eventDate <= :rangeEnd");
+            params.put("rangeEnd", rangeEnd);
+        }
+        if (onlyAvailable) {
+            jpql.append(" AND (e.participantLimit = 0 OR e.confirmedRequests < e.participantLimit)");
+        }
+        if (afterDate != null) {
+            jpql.append(" AND (e.eventDate, e.id) > (:afterDate, :afterId)");
+            params.put("afterDate", afterDate);
+            params.put("afterId", afterId);
+        }
+        jpql.append(orderBy(pageable.getSort()));
+
+        TypedQuery<EventShortView> query = entityManager.createQuery(jpql.toString(), EventShortView.class);
+        params.forEach(query::setParameter);
+        // One extra row tells whether there is a next slice
+        List<EventShortView> rows = query.setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private static String orderBy(Sort sort) {
+        if (sort.isUnsorted()) {
+            return "";
+        }
+        StringJoiner orders = new StringJoiner(", ", " ORDER BY ", "");
+        for (Sort.Order order : sort) {
+            // Unqualified properties belong to the event, others name their join alias like "v.views"
+            String property = order.getProperty().contains(".") ? order.getProperty() : "e." + order.getProperty();
+            String nulls = switch (order.getNullHandling()) {
+                case NULLS_FIRST -> " NULLS FIRST";
+                case NULLS_LAST -> " NULLS LAST";
+                default -> "";
+            };
+            orders.add(property + (order.isAscending() ? " ASC" : " DESC") + nulls);
+        }
+        return orders.toString();
+    }
+}
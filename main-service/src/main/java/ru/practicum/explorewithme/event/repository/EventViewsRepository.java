@@ -0,0 +1,9 @@
+package ru.practicum.explorewithme.event.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.event.model.EventViews;
+
+@Repository
+public interface EventViewsRepository extends JpaRepository<EventViews, Long>, EventViewsWriter {
+}
@@ -0,0 +1,19 @@
+package ru.practicum.explorewithme.event.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface EventViewsWriter {
+
+    /**
+     * Writes the views of the given events in one batch, skipping events that are not published.
+     */
+    void upsert(Map<Long, Long> views, LocalDateTime refreshedOn);
+
+    /**
+     * Runs the task unless it is already running, on this or another instance.
+     *
+     * @return false if the task was skipped
+     */
+    boolean runExclusively(Runnable task);
+}
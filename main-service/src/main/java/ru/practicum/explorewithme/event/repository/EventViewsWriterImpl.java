@@ -0,0 +1,86 @@
+package ru.practicum.explorewithme.event.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+class EventViewsWriterImpl implements EventViewsWriter {
+    private static final String UPSERT =
+            "MERGE INTO event_views v " +
+            "USING (SELECT e.id AS event_id, CAST(? AS bigint) AS views, CAST(? AS timestamp) AS refreshed_on " +
+            "FROM events e WHERE e.id = ? AND e.state = 'PUBLISHED') s ON v.event_id = s.event_id " +
+            "WHEN MATCHED THEN UPDATE SET views = s.views, refreshed_on = s.refreshed_on " +
+            "WHEN NOT MATCHED THEN INSERT (event_id, views, refreshed_on) VALUES (s.event_id, s.views, s.refreshed_on)";
+    private static final long REFRESH_LOCK = 0x6576656e74766965L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock localLock = new ReentrantLock();
+
+    EventViewsWriterImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void upsert(Map<Long, Long> views, LocalDateTime refreshedOn) {
+        if (views.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(refreshedOn);
+        jdbcTemplate.batchUpdate(UPSERT, List.copyOf(views.entrySet()), views.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setTimestamp(2, timestamp);
+            ps.setLong(3, entry.getKey());
+        });
+    }
+
+    @Override
+    public boolean runExclusively(Runnable task) {
+        // A scheduled run and a direct call on the same instance exclude each other too
+        if (!localLock.tryLock()) {
+            return false;
+        }
+        try {
+            return runLocked(task);
+        } finally {
+            localLock.unlock();
+        }
+    }
+
+    private boolean runLocked(Runnable task) {
+        Boolean ran = jdbcTemplate.execute((Connection connection) -> {
+            // H2 is only used by a single instance
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                task.run();
+                return true;
+            }
+            // A session lock is released by the database if this instance dies while holding it
+            if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(?)")) {
+                return false;
+            }
+            try {
+                task.run();
+            } finally {
+                advisoryLock(connection, "SELECT pg_advisory_unlock(?)");
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(ran);
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, REFRESH_LOCK);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+}
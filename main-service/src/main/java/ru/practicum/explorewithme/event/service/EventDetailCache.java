@@ -0,0 +1,98 @@
+package ru.practicum.explorewithme.event.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.event.dto.EventFullDto;
+import ru.practicum.explorewithme.event.mapper.EventMapper;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.exception.NotFoundException;
+import ru.practicum.explorewithme.transaction.AfterCommit;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Caches published event details for {@code GET /events/{id}}. The event itself is kept until it or its category
+ * is updated, while views and confirmed requests, which change without an update, expire after a short TTL.
+ */
+@Component
+public class EventDetailCache {
+    private final EventRepository eventRepository;
+    private final EventMapper eventMapper;
+    private final EventEnricher eventEnricher;
+    private final Cache<Long, EventFullDto> events;
+    private final Cache<Long, Counters> counters;
+
+    public EventDetailCache(EventRepository eventRepository,
+                            EventMapper eventMapper,
+                            EventEnricher eventEnricher,
+                            @Value("${event-cache.max-size:10000}") long maxSize,
+                            @Value("${event-cache.expire-after-write:10m}") Duration expireAfterWrite,
+                            @Value("${event-cache.counters-ttl:10s}") Duration countersTtl,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.eventRepository = eventRepository;
+        this.eventMapper = eventMapper;
+        this.eventEnricher = eventEnricher;
+        this.events = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(countersTtl)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, events, "events.details");
+            CaffeineCacheMetrics.monitor(registry, counters, "events.counters");
+        });
+    }
+
+    public EventFullDto get(Long eventId) {
+        EventFullDto event = events.get(eventId, this::load);
+        Counters eventCounters = counters.get(eventId, this::loadCounters);
+        return event.toBuilder()
+                .confirmedRequests(eventCounters.getConfirmedRequests())
+                .views(eventCounters.getViews())
+                .build();
+    }
+
+    public void invalidate(Long eventId) {
+        AfterCommit.runAfterCommit(() -> {
+            events.invalidate(eventId);
+            counters.invalidate(eventId);
+        });
+    }
+
+    /**
+     * Evicts the events of a category, whose details embed its name.
+     */
+    public void invalidateCategory(Long catId) {
+        AfterCommit.runAfterCommit(() ->
+                events.asMap().values().removeIf(event -> catId.equals(event.getCategory().getId())));
+    }
+
+    private EventFullDto load(Long eventId) {
+        return eventRepository.findByIdAndState(eventId, EventState.PUBLISHED)
+                .map(eventMapper::toFullDto)
+                .orElseThrow(() -> new NotFoundException("Event not found: " + eventId));
+    }
+
+    private Counters loadCounters(Long eventId) {
+        return new Counters(eventRepository.findConfirmedRequests(eventId).orElse(0L),
+                eventEnricher.getViews(List.of(eventId)).getOrDefault(eventId, 0L));
+    }
+
+    @lombok.Value
+    private static class Counters {
+        long confirmedRequests;
+        long views;
+    }
+}
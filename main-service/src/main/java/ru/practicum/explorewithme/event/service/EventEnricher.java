@@ -0,0 +1,77 @@
+package ru.practicum.explorewithme.event.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.event.dto.EventFullDto;
+import ru.practicum.explorewithme.event.dto.EventShortDto;
+import ru.practicum.explorewithme.event.mapper.EventMapper;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventShortView;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Maps events to DTOs with views filled in, using one stats-server call per collection.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EventEnricher {
+    private final EventMapper eventMapper;
+    private final StatsClient statsClient;
+
+    public EventFullDto toFullDto(Event event) {
+        return toFullDtos(List.of(event)).get(0);
+    }
+
+    public List<EventFullDto> toFullDtos(Collection<Event> events) {
+        Map<Long, Long> views = getViews(getIds(events));
+        return events.stream()
+                .map(event -> {
+                    EventFullDto dto = eventMapper.toFullDto(event);
+                    dto.setViews(views.getOrDefault(event.getId(), 0L));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    public List<EventShortDto> toShortDtosFromViews(Collection<EventShortView> events) {
+        Map<Long, Long> views = getViews(events.stream()
+                .map(EventShortView::getId)
+                .distinct()
+                .collect(Collectors.toList()));
+        return events.stream()
+                .map(event -> {
+                    EventShortDto dto = eventMapper.toShortDto(event);
+                    dto.setViews(views.getOrDefault(event.getId(), 0L));
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> getIds(Collection<Event> events) {
+        return events.stream()
+                .map(Event::getId)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    public Map<Long, Long> getViews(List<Long> eventIds) {
+        if (eventIds.isEmpty()) {
+            return Map.of();
+        }
+
+        try {
+            return EventStats.views(statsClient.getStats(EventStats.START, EventStats.END,
+                    EventStats.uris(eventIds), true).getStats());
+        } catch (Exception e) {
+            log.error("Failed to get views for events {}: {}", eventIds, e.getMessage(), e);
+            return Map.of();
+        }
+    }
+}
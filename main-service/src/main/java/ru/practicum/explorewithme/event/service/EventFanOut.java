@@ -0,0 +1,86 @@
+package ru.practicum.explorewithme.event.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the independent calls of public event requests on a bounded pool, so a request takes as long as
+ * its slowest branch rather than the sum of them. Every branch is timed as {@code events.public.branch}.
+ * When the pool is saturated a branch runs on the calling thread.
+ */
+@Component
+@Slf4j
+public class EventFanOut implements DisposableBean {
+    private final ThreadPoolExecutor executor;
+    private final long deadlineMs;
+    private final MeterRegistry meterRegistry;
+
+    public EventFanOut(@Value("${event-fanout.pool-size:16}") int poolSize,
+                       @Value("${event-fanout.queue-capacity:1000}") int queueCapacity,
+                       @Value("${event-fanout.deadline-ms:2000}") long deadlineMs,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "event-fanout-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.deadlineMs = deadlineMs;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    public CompletableFuture<Void> submit(String branch, Runnable task) {
+        return CompletableFuture.runAsync(() -> time(branch, () -> {
+            task.run();
+            return null;
+        }), executor);
+    }
+
+    public <T> T time(String branch, Supplier<T> call) {
+        if (meterRegistry == null) {
+            return call.get();
+        }
+        return Timer.builder("events.public.branch")
+                .description("Time spent in each branch of public event requests")
+                .tag("branch", branch)
+                .register(meterRegistry)
+                .record(call);
+    }
+
+    /**
+     * Waits for a branch until the deadline. A branch that takes longer keeps running in the background.
+     */
+    public void await(String branch, CompletableFuture<?> future) {
+        try {
+            future.get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Branch {} did not finish within {} ms", branch, deadlineMs);
+        } catch (ExecutionException e) {
+            log.error("Branch {} failed: {}", branch, e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
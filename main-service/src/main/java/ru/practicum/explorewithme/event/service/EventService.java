@@ -12,11 +12,12 @@ import java.util.List;
 
 public interface EventService {
     List<EventFullDto> getEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
-                                        LocalDateTime rangeStart, LocalDateTime rangeEnd, int from, int size);
+                                        LocalDateTime rangeStart, LocalDateTime rangeEnd, int from, int size,
+                                        String after);
 
     EventFullDto updateEventByAdmin(Long eventId, UpdateEventAdminRequest request);
 
-    List<EventShortDto> getEventsByUser(Long userId, int from, int size);
+    List<EventShortDto> getEventsByUser(Long userId, int from, int size, String after);
 
     EventFullDto createEvent(Long userId, NewEventDto dto);
 
@@ -26,7 +27,7 @@ public interface EventService {
 
     List<EventShortDto> getPublicEvents(String text, List<Long> categories, Boolean paid,
                                         LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                        Boolean onlyAvailable, String sort, int from, int size,
+                                        Boolean onlyAvailable, String sort, int from, int size, String after,
                                         String ip, String uri);
 
     EventFullDto getPublicEventById(Long id, String ip, String uri);
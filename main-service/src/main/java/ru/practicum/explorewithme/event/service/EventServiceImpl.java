@@ -10,15 +10,16 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.category.model.Category;
 import ru.practicum.explorewithme.category.repository.CategoryRepository;
 import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.compilation.service.PinnedCompilationCache;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
-import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.event.dto.EventCursor;
 import ru.practicum.explorewithme.event.dto.EventFullDto;
 import ru.practicum.explorewithme.event.dto.EventShortDto;
 import ru.practicum.explorewithme.event.dto.NewEventDto;
 import ru.practicum.explorewithme.event.dto.UpdateEventAdminRequest;
 import ru.practicum.explorewithme.event.dto.UpdateEventUserRequest;
-import ru.practicum.explorewithme.event.mapper.EventMapper;
 import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventShortView;
 import ru.practicum.explorewithme.event.model.EventState;
 import ru.practicum.explorewithme.event.repository.EventRepository;
 import ru.practicum.explorewithme.exception.BadRequestException;
@@ -28,30 +29,34 @@ import ru.practicum.explorewithme.user.model.User;
 import ru.practicum.explorewithme.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 @Transactional(readOnly = true)
 public class EventServiceImpl implements EventService {
+    private static final Sort BY_EVENT_DATE = Sort.by("eventDate", "id");
+    private static final Sort BY_ID = Sort.by("id");
+
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
-    private final EventMapper eventMapper;
     private final StatsClient statsClient;
+    private final EventEnricher eventEnricher;
+    private final EventDetailCache eventDetailCache;
+    private final PinnedCompilationCache pinnedCompilationCache;
+    private final EventFanOut eventFanOut;
 
     @Override
     public List<EventFullDto> getEventsByAdmin(List<Long> users, List<EventState> states, List<Long> categories,
-                                                LocalDateTime rangeStart, LocalDateTime rangeEnd, int from, int size) {
-        Pageable pageable = PageRequest.of(from / size, size);
-        return eventRepository.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd, pageable)
-                .stream()
-                .map(this::toFullDto)
-                .collect(Collectors.toList());
+                                                LocalDateTime rangeStart, LocalDateTime rangeEnd, int from, int size,
+                                                String after) {
+        EventCursor cursor = EventCursor.parse(after);
+        List<Event> events = eventRepository.findEventsByAdmin(users, states, categories, rangeStart, rangeEnd,
+                afterDate(cursor), afterId(cursor), page(cursor, from, size, cursorOrder(cursor))).getContent();
+        return eventEnricher.toFullDtos(events);
     }
 
     @Override
@@ -89,6 +94,9 @@ public class EventServiceImpl implements EventService {
         if (request.getRequestModeration() != null) {
             event.setRequestModeration(request.getRequestModeration());
         }
+        if (request.getQueuedAdmission() != null) {
+            event.setQueuedAdmission(request.getQueuedAdmission());
+        }
         if (request.getTitle() != null) {
             event.setTitle(request.getTitle());
         }
@@ -109,19 +117,20 @@ public class EventServiceImpl implements EventService {
         }
 
         Event updated = eventRepository.save(event);
+        eventDetailCache.invalidate(eventId);
+        pinnedCompilationCache.invalidate();
         log.info("Updated event by admin: {}", updated);
-        return toFullDto(updated);
+        return eventEnricher.toFullDto(updated);
     }
 
     @Override
-    public List<EventShortDto> getEventsByUser(Long userId, int from, int size) {
+    public List<EventShortDto> getEventsByUser(Long userId, int from, int size, String after) {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("User not found: " + userId);
         }
-        Pageable pageable = PageRequest.of(from / size, size);
-        return eventRepository.findByInitiatorId(userId, pageable).stream()
-                .map(this::toShortDto)
-                .collect(Collectors.toList());
+        EventCursor cursor = EventCursor.parse(after);
+        return eventEnricher.toShortDtosFromViews(eventRepository.findByInitiatorId(userId, afterDate(cursor),
+                afterId(cursor), page(cursor, from, size, cursorOrder(cursor))).getContent());
     }
 
     @Override
@@ -153,14 +162,14 @@ public class EventServiceImpl implements EventService {
 
         Event saved = eventRepository.save(event);
         log.info("Created event: {}", saved);
-        return toFullDto(saved);
+        return eventEnricher.toFullDto(saved);
     }
 
     @Override
     public EventFullDto getEventByUser(Long userId, Long eventId) {
         Event event = eventRepository.findByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new NotFoundException("Event not found: " + eventId));
-        return toFullDto(event);
+        return eventEnricher.toFullDto(event);
     }
 
     @Override
@@ -215,14 +224,16 @@ public class EventServiceImpl implements EventService {
         }
 
         Event updated = eventRepository.save(event);
+        eventDetailCache.invalidate(eventId);
+        pinnedCompilationCache.invalidate();
         log.info("Updated event by user: {}", updated);
-        return toFullDto(updated);
+        return eventEnricher.toFullDto(updated);
     }
 
     @Override
     public List<EventShortDto> getPublicEvents(String text, List<Long> categories, Boolean paid,
                                                 LocalDateTime rangeStart, LocalDateTime rangeEnd,
-                                                Boolean onlyAvailable, String sort, int from, int size,
+                                                Boolean onlyAvailable, String sort, int from, int size, String after,
                                                 String ip, String uri) {
         if (rangeStart == null) {
             rangeStart = LocalDateTime.now();
@@ -232,123 +243,54 @@ public class EventServiceImpl implements EventService {
             throw new BadRequestException("Range start must be before range end");
         }
 
-        Sort sorting = sort != null && sort.equals("VIEWS") ? Sort.by("id") : Sort.by("eventDate");
-        Pageable pageable = PageRequest.of(from / size, size, sorting);
-
-        List<Event> events = eventRepository.findPublicEvents(text, categories, paid, rangeStart, rangeEnd, pageable)
-                .getContent();
-
-        saveStats(ip, uri);
-
-        Map<Long, Long> eventUriIdMap = getEventUriIdMap(events.stream()
-                .map(Event::getId)
-                .collect(Collectors.toList()));
+        boolean byViews = sort != null && sort.equals("VIEWS");
+        EventCursor cursor = EventCursor.parse(after);
+        if (byViews && cursor != null) {
+            throw new BadRequestException("Cursor paging is only supported when sorting by event date");
+        }
+        // Views come from the event_views snapshot joined as "v" in findPublicEvents
+        Sort sorting = byViews
+                ? Sort.by(Sort.Order.desc("v.views").nullsLast(), Sort.Order.asc("id"))
+                : BY_EVENT_DATE;
 
-        Map<Long, Long> confirmedRequestsMap = getConfirmedRequestsMap(events.stream()
-                .map(Event::getId)
-                .collect(Collectors.toList()));
+        // Recording the hit does not depend on the listing, so it runs alongside the query and the views lookup
+        CompletableFuture<Void> hit = eventFanOut.submit("hit", () -> saveStats(ip, uri));
 
-        List<EventShortDto> result = events.stream()
-                .map(event -> toShortDto(event, confirmedRequestsMap.getOrDefault(event.getId(), 0L),
-                        eventUriIdMap.getOrDefault(event.getId(), 0L)))
-                .collect(Collectors.toList());
-
-        if (sort != null && sort.equals("VIEWS")) {
-            result.sort(Comparator.comparing(EventShortDto::getViews).reversed());
-        }
+        LocalDateTime start = rangeStart;
+        List<EventShortView> events = eventFanOut.time("query", () -> eventRepository.findPublicEvents(text,
+                categories, paid, start, rangeEnd, Boolean.TRUE.equals(onlyAvailable), afterDate(cursor),
+                afterId(cursor), page(cursor, from, size, sorting)).getContent());
+        List<EventShortDto> result = eventFanOut.time("views", () -> eventEnricher.toShortDtosFromViews(events));
 
+        eventFanOut.await("hit", hit);
         return result;
     }
 
     @Override
     public EventFullDto getPublicEventById(Long id, String ip, String uri) {
-        Event event = eventRepository.findByIdAndState(id, EventState.PUBLISHED)
-                .orElseThrow(() -> new NotFoundException("Event not found: " + id));
+        EventFullDto event = eventDetailCache.get(id);
 
         saveStats(ip, uri);
 
-        return toFullDto(event);
-    }
-
-    private EventFullDto toFullDto(Event event) {
-        EventFullDto dto = eventMapper.toFullDto(event);
-        dto.setConfirmedRequests(eventRepository.countConfirmedRequests(event.getId()));
-        dto.setViews(getViews(event.getId()));
-        return dto;
+        return event;
     }
 
-    private EventShortDto toShortDto(Event event) {
-        EventShortDto dto = eventMapper.toShortDto(event);
-        dto.setConfirmedRequests(eventRepository.countConfirmedRequests(event.getId()));
-        dto.setViews(getViews(event.getId()));
-        return dto;
+    private static Pageable page(EventCursor cursor, int from, int size, Sort sort) {
+        // With a cursor the keyset condition replaces the offset
+        return PageRequest.of(cursor == null ? from / size : 0, size, sort);
     }
 
-    private EventShortDto toShortDto(Event event, Long confirmedRequests, Long views) {
-        EventShortDto dto = eventMapper.toShortDto(event);
-        dto.setConfirmedRequests(confirmedRequests);
-        dto.setViews(views);
-        return dto;
-    }
-
-    private Map<Long, Long> getEventUriIdMap(List<Long> eventIds) {
-        if (eventIds.isEmpty()) {
-            return Map.of();
-        }
-
-        try {
-            List<String> uris = eventIds.stream()
-                    .map(id -> "/events/" + id)
-                    .collect(Collectors.toList());
-
-            LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
-            LocalDateTime end = LocalDateTime.now().plusMinutes(5);
-
-            List<ViewStatsDto> stats = statsClient.getStats(start, end, uris, true);
-
-            return stats.stream()
-                    .collect(Collectors.toMap(
-                            stat -> Long.parseLong(stat.getUri().substring("/events/".length())),
-                            ViewStatsDto::getHits
-                    ));
-        } catch (Exception e) {
-            log.error("Failed to get views for events: {}", e.getMessage(), e);
-            return Map.of();
-        }
+    private static Sort cursorOrder(EventCursor cursor) {
+        // Offset pages of the admin and initiator listings keep their id order; only cursor pages follow event dates
+        return cursor == null ? BY_ID : BY_EVENT_DATE;
     }
 
-    private Map<Long, Long> getConfirmedRequestsMap(List<Long> eventIds) {
-        if (eventIds.isEmpty()) {
-            return Map.of();
-        }
-
-        List<Object[]> results = eventRepository.countConfirmedRequestsByEventIds(eventIds);
-        return results.stream()
-                .collect(Collectors.toMap(
-                        row -> (Long) row[0],
-                        row -> (Long) row[1]
-                ));
+    private static LocalDateTime afterDate(EventCursor cursor) {
+        return cursor == null ? null : cursor.getEventDate();
     }
 
-    private Long getViews(Long eventId) {
-        try {
-            String uri = "/events/" + eventId;
-            LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0);
-            LocalDateTime end = LocalDateTime.now().plusMinutes(5);
-
-            log.info("Getting views for event {} with uri={}, start={}, end={}, unique=true",
-                    eventId, uri, start, end);
-
-            List<ViewStatsDto> stats = statsClient.getStats(start, end, List.of(uri), true);
-
-            log.info("Stats result for event {}: stats.size()={}, hits={}",
-                    eventId, stats.size(), stats.isEmpty() ? 0 : stats.get(0).getHits());
-
-            return stats.isEmpty() ? 0L : stats.get(0).getHits();
-        } catch (Exception e) {
-            log.error("Failed to get views for event {}: {}", eventId, e.getMessage(), e);
-            return 0L;
-        }
+    private static Long afterId(EventCursor cursor) {
+        return cursor == null ? null : cursor.getId();
     }
 
     private void saveStats(String ip, String uri) {
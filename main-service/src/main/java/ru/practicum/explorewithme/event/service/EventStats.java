@@ -0,0 +1,55 @@
+package ru.practicum.explorewithme.event.service;
+
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * How views of events are looked up in stats-server: the URI of each event and the range covering all its hits.
+ */
+final class EventStats {
+    static final LocalDateTime START = LocalDateTime.of(2000, 1, 1, 0, 0);
+    // A fixed end keeps the requests identical, so stats-server can answer them from its cache and the client
+    // can fall back to the last known views of the same request
+    static final LocalDateTime END = LocalDateTime.of(2100, 1, 1, 0, 0);
+
+    private static final String URI_PREFIX = "/events/";
+    private static final Pattern EVENT_URI = Pattern.compile("/events/(\\d{1,18})");
+
+    private EventStats() {
+    }
+
+    static List<String> uris(Collection<Long> eventIds) {
+        return eventIds.stream()
+                .map(id -> URI_PREFIX + id)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the id of the event the URI shows, or nothing for any other URI.
+     */
+    static Optional<Long> eventId(String uri) {
+        Matcher matcher = EVENT_URI.matcher(uri);
+        return matcher.matches() ? Optional.of(Long.parseLong(matcher.group(1))) : Optional.empty();
+    }
+
+    /**
+     * Sums the hits of each event, ignoring URIs that do not show an event.
+     */
+    static Map<Long, Long> views(List<ViewStatsDto> stats) {
+        return stats.stream()
+                .filter(stat -> eventId(stat.getUri()).isPresent())
+                .collect(Collectors.toMap(
+                        stat -> eventId(stat.getUri()).orElseThrow(),
+                        ViewStatsDto::getHits,
+                        Long::sum
+                ));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.explorewithme.event.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.StatsResult;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.repository.EventViewsRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Copies unique views of published events from stats-server into {@code event_views},
+ * which public listings use to sort by views. The snapshot lags by at most one refresh interval.
+ * The first complete refresh of an instance covers every published event; later ones only read events hit since
+ * the previous complete refresh. Views are only written as stats-server reports them, never from fallback data.
+ * One instance refreshes at a time.
+ */
+@Component
+@Slf4j
+public class EventViewsRefresher {
+    private final EventRepository eventRepository;
+    private final EventViewsRepository eventViewsRepository;
+    private final StatsClient statsClient;
+    private final int batchSize;
+    private final Duration hitDelay;
+    private volatile LocalDateTime lastRefresh;
+
+    public EventViewsRefresher(EventRepository eventRepository,
+                               EventViewsRepository eventViewsRepository,
+                               StatsClient statsClient,
+                               @Value("${event-views.batch-size:500}") int batchSize,
+                               @Value("${event-views.hit-delay:5m}") Duration hitDelay) {
+        this.eventRepository = eventRepository;
+        this.eventViewsRepository = eventViewsRepository;
+        this.statsClient = statsClient;
+        this.batchSize = batchSize;
+        this.hitDelay = hitDelay;
+    }
+
+    @Scheduled(initialDelayString = "${event-views.initial-delay-ms:0}",
+               fixedDelayString = "${event-views.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (!eventViewsRepository.runExclusively(this::refreshViews)) {
+            log.debug("Event views are being refreshed elsewhere");
+        }
+    }
+
+    private void refreshViews() {
+        LocalDateTime now = LocalDateTime.now();
+        long written = 0;
+        try {
+            if (lastRefresh != null) {
+                // Hits reach stats-server in batches, so the window reaches back to cover late ones
+                List<Long> eventIds = findHitEventIds(lastRefresh.minus(hitDelay), now);
+                for (int from = 0; from < eventIds.size(); from += batchSize) {
+                    written += refresh(eventIds.subList(from, Math.min(from + batchSize, eventIds.size())), now);
+                }
+            } else {
+                long afterId = 0;
+                List<Long> eventIds;
+                do {
+                    eventIds = eventRepository.findPublishedIds(afterId, PageRequest.of(0, batchSize));
+                    if (!eventIds.isEmpty()) {
+                        written += refresh(eventIds, now);
+                        afterId = eventIds.get(eventIds.size() - 1);
+                    }
+                } while (eventIds.size() == batchSize);
+            }
+        } catch (Exception e) {
+            // The window is kept, so the next refresh covers these events again
+            log.error("Failed to refresh event views after writing {}: {}", written, e.getMessage(), e);
+            return;
+        }
+        lastRefresh = now;
+        log.debug("Refreshed views of {} events", written);
+    }
+
+    private List<Long> findHitEventIds(LocalDateTime start, LocalDateTime now) {
+        return statsClient.getStats(start, now.plusMinutes(5), null, false).getStats().stream()
+                .map(stat -> EventStats.eventId(stat.getUri()))
+                .flatMap(Optional::stream)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private int refresh(List<Long> eventIds, LocalDateTime now) {
+        StatsResult result = statsClient.getStats(EventStats.START, EventStats.END, EventStats.uris(eventIds), true);
+        if (result.isFallback()) {
+            throw new IllegalStateException("stats-server is unavailable, last known views are not stored");
+        }
+        // Events without hits are not reported and keep no row, which sorts them after every viewed event
+        Map<Long, Long> views = EventStats.views(result.getStats());
+        views.keySet().retainAll(eventIds);
+        eventViewsRepository.upsert(views, now);
+        return views.size();
+    }
+}
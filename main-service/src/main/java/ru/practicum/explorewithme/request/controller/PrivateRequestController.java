@@ -1,8 +1,10 @@
 package ru.practicum.explorewithme.request.controller;
 
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -20,13 +22,16 @@ import java.util.List;
 @RequestMapping("/users/{userId}/requests")
 @RequiredArgsConstructor
 @Slf4j
+@Validated
 public class PrivateRequestController {
     private final RequestService requestService;
 
     @GetMapping
-    public List<ParticipationRequestDto> getUserRequests(@PathVariable Long userId) {
-        log.info("Getting requests for user {}", userId);
-        return requestService.getUserRequests(userId);
+    public List<ParticipationRequestDto> getUserRequests(@PathVariable Long userId,
+                                                          @RequestParam(required = false) Long after,
+                                                          @RequestParam(required = false) @Positive Integer size) {
+        log.info("Getting requests for user {}: after={}, size={}", userId, after, size);
+        return requestService.getUserRequests(userId, after, size);
     }
 
     @PostMapping
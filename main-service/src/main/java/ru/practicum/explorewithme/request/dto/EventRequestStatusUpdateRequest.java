@@ -15,5 +15,7 @@ import java.util.List;
 public class EventRequestStatusUpdateRequest {
     private List<Long> requestIds;
     private RequestStatus status;
+    // When confirming fills the event, reject every other request still pending for it
+    private Boolean rejectRemaining;
 }
 
@@ -1,23 +1,67 @@
 package ru.practicum.explorewithme.request.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.request.dto.ParticipationRequestDto;
 import ru.practicum.explorewithme.request.model.Request;
 import ru.practicum.explorewithme.request.model.RequestStatus;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RequestRepository extends JpaRepository<Request, Long> {
-    List<Request> findByRequesterId(Long requesterId);
-
-    List<Request> findByEventId(Long eventId);
+    String DTO = "SELECT new ru.practicum.explorewithme.request.dto.ParticipationRequestDto(" +
+                 "r.id, r.created, r.event.id, r.requester.id, r.status) FROM Request r ";
 
     Optional<Request> findByIdAndRequesterId(Long id, Long requesterId);
 
     boolean existsByRequesterIdAndEventId(Long requesterId, Long eventId);
 
-    long countByEventIdAndStatus(Long eventId, RequestStatus status);
+    @Query("SELECT r.id FROM Request r WHERE r.id IN :ids AND r.status = 'PENDING' ORDER BY r.id")
+    List<Long> findPendingIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset pages ordered by id; a null afterId starts from the beginning and an unpaged request returns all
+    @Query(DTO + "WHERE r.requester.id = :requesterId AND (:afterId IS NULL OR r.id > :afterId) ORDER BY r.id")
+    List<ParticipationRequestDto> findDtosByRequesterId(@Param("requesterId") Long requesterId,
+                                                        @Param("afterId") Long afterId,
+                                                        Pageable pageable);
+
+    @Query(DTO + "WHERE r.event.id = :eventId AND (:afterId IS NULL OR r.id > :afterId) ORDER BY r.id")
+    List<ParticipationRequestDto> findDtosByEventId(@Param("eventId") Long eventId,
+                                                    @Param("afterId") Long afterId,
+                                                    Pageable pageable);
+
+    @Query(DTO + "WHERE r.event.id = :eventId AND r.id IN :ids ORDER BY r.id")
+    List<ParticipationRequestDto> findDtosByEventIdAndIdIn(@Param("eventId") Long eventId,
+                                                    @Param("ids") Collection<Long> ids);
+
+    /**
+     * Moves the listed requests out of PENDING and returns how many were moved; requests that are no longer
+     * pending are left untouched.
+     */
+    @Modifying
+    @Query("UPDATE Request r SET r.status = :status WHERE r.id IN :ids AND r.status = 'PENDING'")
+    int updatePendingStatus(@Param("ids") Collection<Long> ids, @Param("status") RequestStatus status);
+
+    // Rejects what is still pending once the event has no free slots left
+    @Modifying
+    @Query("UPDATE Request r SET r.status = 'REJECTED' " +
+           "WHERE r.event.id = :eventId AND r.status = 'PENDING' " +
+           "AND EXISTS (SELECT e.id FROM Event e WHERE e.id = :eventId " +
+           "AND e.participantLimit > 0 AND e.confirmedRequests >= e.participantLimit)")
+    int rejectPendingIfFull(@Param("eventId") Long eventId);
+
+    // Requests waiting in AdmissionQueue, lost from memory if the service stopped before they were admitted
+    @Query("SELECT r FROM Request r " +
+           "WHERE r.status = 'PENDING' AND r.event.queuedAdmission = true " +
+           "AND (r.event.requestModeration = false OR r.event.participantLimit = 0) " +
+           "ORDER BY r.id")
+    List<Request> findQueued();
 }
 
@@ -0,0 +1,162 @@
+package ru.practicum.explorewithme.request.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.exception.ConflictException;
+import ru.practicum.explorewithme.request.model.Request;
+import ru.practicum.explorewithme.request.model.RequestStatus;
+import ru.practicum.explorewithme.request.repository.RequestRepository;
+import ru.practicum.explorewithme.transaction.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits participation requests of events with queued admission. Requests are stored as pending and queued
+ * in arrival order; a single drainer per event confirms as many as there are free slots and rejects the rest,
+ * a batch at a time, so sign-ups for a hot event never contend on the event row. A batch that fails goes back
+ * to the head of its queue and is retried after a pause.
+ */
+@Component
+@Slf4j
+public class AdmissionQueue implements InitializingBean, DisposableBean {
+    private final RequestRepository requestRepository;
+    private final EventRepository eventRepository;
+    private final ParticipantSlots participantSlots;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long retryDelayMs;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Map<Long, EventQueue> queues = new ConcurrentHashMap<>();
+
+    public AdmissionQueue(RequestRepository requestRepository,
+                          EventRepository eventRepository,
+                          ParticipantSlots participantSlots,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${request-queue.drainers:4}") int drainers,
+                          @Value("${request-queue.batch-size:100}") int batchSize,
+                          @Value("${request-queue.retry-delay-ms:1000}") long retryDelayMs) {
+        this.requestRepository = requestRepository;
+        this.eventRepository = eventRepository;
+        this.participantSlots = participantSlots;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.retryDelayMs = retryDelayMs;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(drainers, runnable -> {
+            Thread thread = new Thread(runnable, "admission-drainer-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Queued requests stay pending in the database and are re-queued on the next start
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<Request> queued = requestRepository.findQueued();
+        for (Request request : queued) {
+            add(request.getEvent().getId(), request.getId());
+        }
+        if (!queued.isEmpty()) {
+            log.info("Re-queued {} requests waiting for admission", queued.size());
+        }
+    }
+
+    /**
+     * Queues a saved pending request once the current transaction commits.
+     */
+    public void enqueue(Long eventId, Long requestId) {
+        AfterCommit.runAfterCommit(() -> add(eventId, requestId));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private void add(Long eventId, Long requestId) {
+        EventQueue queue = queues.computeIfAbsent(eventId, id -> new EventQueue());
+        queue.requestIds.add(requestId);
+        schedule(eventId, queue);
+    }
+
+    private void schedule(Long eventId, EventQueue queue) {
+        if (queue.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(eventId, queue));
+        }
+    }
+
+    private void drain(Long eventId, EventQueue queue) {
+        List<Long> batch = new ArrayList<>(batchSize);
+        try {
+            Long requestId;
+            while ((requestId = queue.requestIds.poll()) != null) {
+                batch.add(requestId);
+                if (batch.size() == batchSize) {
+                    admit(eventId, batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                admit(eventId, batch);
+            }
+        } catch (RuntimeException e) {
+            // The queue stays marked as draining, so later requests wait behind the failed batch
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                queue.requestIds.offerFirst(batch.get(i));
+            }
+            log.error("Failed to admit {} requests for event {}, retrying in {} ms: {}", batch.size(), eventId,
+                    retryDelayMs, e.getMessage(), e);
+            executor.schedule(() -> drain(eventId, queue), retryDelayMs, TimeUnit.MILLISECONDS);
+            return;
+        }
+        queue.draining.set(false);
+        // A request added after the last poll but before draining was reset would otherwise wait for the next one
+        if (!queue.requestIds.isEmpty()) {
+            schedule(eventId, queue);
+        }
+    }
+
+    private void admit(Long eventId, List<Long> requestIds) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Event event = eventRepository.findById(eventId).orElse(null);
+            // Requests canceled while queued are skipped and take no slot
+            List<Long> pending = requestRepository.findPendingIds(requestIds);
+            if (event == null || pending.isEmpty()) {
+                return;
+            }
+            int granted = (int) participantSlots.reserveUpTo(event, pending.size());
+            // A request canceled since it was read must not keep a slot; rolling back returns the reserved ones
+            if (granted > 0
+                    && requestRepository.updatePendingStatus(pending.subList(0, granted), RequestStatus.CONFIRMED)
+                    != granted) {
+                throw new ConflictException("Queued requests of event " + eventId + " changed while being admitted");
+            }
+            if (granted < pending.size()) {
+                requestRepository.updatePendingStatus(pending.subList(granted, pending.size()), RequestStatus.REJECTED);
+            }
+            log.info("Admitted {} and rejected {} queued requests for event {}", granted,
+                    pending.size() - granted, eventId);
+        });
+    }
+
+    private static class EventQueue {
+        private final Deque<Long> requestIds = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.explorewithme.request.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+
+/**
+ * Takes participant slots of an event for requests being confirmed, shared by moderation and queued admission.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParticipantSlots {
+    private final EventRepository eventRepository;
+
+    /**
+     * Takes up to {@code wanted} participant slots and returns how many were taken. Every attempt is a single
+     * conditional UPDATE, so concurrent admissions can never take more slots than the limit allows.
+     * Must run in the transaction that confirms the requests, so that the slots are returned if it rolls back.
+     */
+    public long reserveUpTo(Event event, long wanted) {
+        long granted = wanted;
+        while (granted > 0 && eventRepository.reserveSlots(event.getId(), granted) == 0) {
+            long confirmed = eventRepository.findConfirmedRequests(event.getId()).orElse(0L);
+            granted = Math.min(granted - 1, event.getParticipantLimit() - confirmed);
+        }
+        return Math.max(granted, 0);
+    }
+}
@@ -7,13 +7,13 @@ import ru.practicum.explorewithme.request.dto.ParticipationRequestDto;
 import java.util.List;
 
 public interface RequestService {
-    List<ParticipationRequestDto> getUserRequests(Long userId);
+    List<ParticipationRequestDto> getUserRequests(Long userId, Long after, Integer size);
 
     ParticipationRequestDto createRequest(Long userId, Long eventId);
 
     ParticipationRequestDto cancelRequest(Long userId, Long requestId);
 
-    List<ParticipationRequestDto> getEventRequests(Long userId, Long eventId);
+    List<ParticipationRequestDto> getEventRequests(Long userId, Long eventId, Long after, Integer size);
 
     EventRequestStatusUpdateResult updateRequestStatus(Long userId, Long eventId, EventRequestStatusUpdateRequest request);
 }
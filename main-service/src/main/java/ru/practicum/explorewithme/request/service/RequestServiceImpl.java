@@ -2,6 +2,8 @@ package ru.practicum.explorewithme.request.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.explorewithme.event.model.Event;
@@ -20,8 +22,9 @@ import ru.practicum.explorewithme.user.model.User;
 import ru.practicum.explorewithme.user.repository.UserRepository;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,15 +36,15 @@ public class RequestServiceImpl implements RequestService {
     private final EventRepository eventRepository;
     private final UserRepository userRepository;
     private final RequestMapper requestMapper;
+    private final AdmissionQueue admissionQueue;
+    private final ParticipantSlots participantSlots;
 
     @Override
-    public List<ParticipationRequestDto> getUserRequests(Long userId) {
+    public List<ParticipationRequestDto> getUserRequests(Long userId, Long after, Integer size) {
         if (!userRepository.existsById(userId)) {
             throw new NotFoundException("User not found: " + userId);
         }
-        return requestRepository.findByRequesterId(userId).stream()
-                .map(requestMapper::toDto)
-                .collect(Collectors.toList());
+        return requestRepository.findDtosByRequesterId(userId, after, page(size));
     }
 
     @Override
@@ -64,17 +67,22 @@ public class RequestServiceImpl implements RequestService {
             throw new ConflictException("Request already exists");
         }
 
-        if (event.getParticipantLimit() > 0) {
-            long confirmedRequests = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
-            if (confirmedRequests >= event.getParticipantLimit()) {
-                throw new ConflictException("Participant limit reached");
-            }
+        if (event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
+            throw new ConflictException("Participant limit reached");
         }
 
         RequestStatus status = !event.getRequestModeration() || event.getParticipantLimit() == 0
                 ? RequestStatus.CONFIRMED
                 : RequestStatus.PENDING;
 
+        boolean queued = status == RequestStatus.CONFIRMED && event.getQueuedAdmission();
+        if (queued) {
+            // Stays pending until AdmissionQueue confirms or rejects it
+            status = RequestStatus.PENDING;
+        } else if (status == RequestStatus.CONFIRMED && eventRepository.reserveSlots(eventId, 1) == 0) {
+            throw new ConflictException("Participant limit reached");
+        }
+
         Request request = Request.builder()
                 .created(LocalDateTime.now())
                 .event(event)
@@ -83,6 +91,9 @@ public class RequestServiceImpl implements RequestService {
                 .build();
 
         Request saved = requestRepository.save(request);
+        if (queued) {
+            admissionQueue.enqueue(eventId, saved.getId());
+        }
         log.info("Created request: {}", saved);
         return requestMapper.toDto(saved);
     }
@@ -93,6 +104,9 @@ public class RequestServiceImpl implements RequestService {
         Request request = requestRepository.findByIdAndRequesterId(requestId, userId)
                 .orElseThrow(() -> new NotFoundException("Request not found: " + requestId));
 
+        if (request.getStatus() == RequestStatus.CONFIRMED) {
+            eventRepository.addConfirmedRequests(request.getEvent().getId(), -1);
+        }
         request.setStatus(RequestStatus.CANCELED);
         Request updated = requestRepository.save(request);
         log.info("Canceled request: {}", updated);
@@ -100,13 +114,11 @@ public class RequestServiceImpl implements RequestService {
     }
 
     @Override
-    public List<ParticipationRequestDto> getEventRequests(Long userId, Long eventId) {
-        Event event = eventRepository.findByIdAndInitiatorId(eventId, userId)
-                .orElseThrow(() -> new NotFoundException("Event not found: " + eventId));
-
-        return requestRepository.findByEventId(event.getId()).stream()
-                .map(requestMapper::toDto)
-                .collect(Collectors.toList());
+    public List<ParticipationRequestDto> getEventRequests(Long userId, Long eventId, Long after, Integer size) {
+        if (!eventRepository.existsByIdAndInitiatorId(eventId, userId)) {
+            throw new NotFoundException("Event not found: " + eventId);
+        }
+        return requestRepository.findDtosByEventId(eventId, after, page(size));
     }
 
     @Override
@@ -116,41 +128,37 @@ public class RequestServiceImpl implements RequestService {
         Event event = eventRepository.findByIdAndInitiatorId(eventId, userId)
                 .orElseThrow(() -> new NotFoundException("Event not found: " + eventId));
 
-        List<Request> requests = requestRepository.findAllById(updateRequest.getRequestIds());
+        // Projections only: neither the requests nor their event and requester graphs are loaded
+        List<ParticipationRequestDto> requests = requestRepository.findDtosByEventIdAndIdIn(eventId,
+                updateRequest.getRequestIds());
+        // Ids that do not exist or belong to another event fail the whole update
+        Set<Long> missing = new TreeSet<>(updateRequest.getRequestIds());
+        requests.forEach(request -> missing.remove(request.getId()));
+        if (!missing.isEmpty()) {
+            throw new NotFoundException("Requests not found for event " + eventId + ": " + missing);
+        }
 
         if (requests.stream().anyMatch(r -> r.getStatus() != RequestStatus.PENDING)) {
             throw new ConflictException("Can only update pending requests");
         }
 
-        long confirmedRequests = requestRepository.countByEventIdAndStatus(eventId, RequestStatus.CONFIRMED);
-
-        List<ParticipationRequestDto> confirmed = new ArrayList<>();
-        List<ParticipationRequestDto> rejected = new ArrayList<>();
-
+        int granted = 0;
         if (updateRequest.getStatus() == RequestStatus.CONFIRMED) {
-            // Проверяем лимит до начала обработки
-            if (event.getParticipantLimit() > 0 && confirmedRequests >= event.getParticipantLimit()) {
+            granted = (int) participantSlots.reserveUpTo(event, requests.size());
+            if (granted == 0 && !requests.isEmpty()) {
                 throw new ConflictException("Participant limit already reached");
             }
-
-            for (Request request : requests) {
-                if (event.getParticipantLimit() > 0 && confirmedRequests >= event.getParticipantLimit()) {
-                    request.setStatus(RequestStatus.REJECTED);
-                    rejected.add(requestMapper.toDto(request));
-                } else {
-                    request.setStatus(RequestStatus.CONFIRMED);
-                    confirmed.add(requestMapper.toDto(request));
-                    confirmedRequests++;
-                }
-            }
-        } else {
-            for (Request request : requests) {
-                request.setStatus(RequestStatus.REJECTED);
-                rejected.add(requestMapper.toDto(request));
-            }
         }
 
-        requestRepository.saveAll(requests);
+        List<ParticipationRequestDto> confirmed = requests.subList(0, granted);
+        List<ParticipationRequestDto> rejected = requests.subList(granted, requests.size());
+        updatePendingStatus(confirmed, RequestStatus.CONFIRMED);
+        updatePendingStatus(rejected, RequestStatus.REJECTED);
+
+        if (granted > 0 && Boolean.TRUE.equals(updateRequest.getRejectRemaining())) {
+            log.info("Rejected {} remaining pending requests for event {}",
+                    requestRepository.rejectPendingIfFull(eventId), eventId);
+        }
         log.info("Updated request statuses for event {}", eventId);
 
         return EventRequestStatusUpdateResult.builder()
@@ -158,5 +166,24 @@ public class RequestServiceImpl implements RequestService {
                 .rejectedRequests(rejected)
                 .build();
     }
+
+    private static Pageable page(Integer size) {
+        // Without a size the whole list is returned, as before paging was added
+        return size == null ? Pageable.unpaged() : PageRequest.of(0, size);
+    }
+
+    private void updatePendingStatus(List<ParticipationRequestDto> requests, RequestStatus status) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        List<Long> ids = requests.stream()
+                .map(ParticipationRequestDto::getId)
+                .collect(Collectors.toList());
+        // A request moderated concurrently is no longer pending; failing rolls back the reserved slots too
+        if (requestRepository.updatePendingStatus(ids, status) != ids.size()) {
+            throw new ConflictException("Can only update pending requests");
+        }
+        requests.forEach(request -> request.setStatus(status));
+    }
 }
 
@@ -0,0 +1,22 @@
+-- Adds confirmed_requests to databases created before it existed and fills it in once, when the column is added
+do '
+begin
+    if not exists (select 1
+                   from information_schema.columns
+                   where table_schema = current_schema()
+                     and table_name = ''events''
+                     and column_name = ''confirmed_requests'') then
+        alter table events add column confirmed_requests bigint not null default 0;
+        update events e
+        set confirmed_requests = (select count(*) from requests r where r.event_id = e.id and r.status = ''CONFIRMED'');
+    end if;
+end';
+
+-- Covers public listings with onlyAvailable=true, which keep only events that still have free slots
+create index if not exists idx_events_available on events (event_date)
+    where state = 'PUBLISHED' and (participant_limit = 0 or confirmed_requests < participant_limit);
+
+-- Trigram indexes serve the LOWER(...) LIKE %text% filter of public search without scanning every event
+create extension if not exists pg_trgm;
+create index if not exists idx_events_annotation_trgm on events using gin (lower(annotation) gin_trgm_ops);
+create index if not exists idx_events_description_trgm on events using gin (lower(description) gin_trgm_ops);
@@ -26,12 +26,16 @@ create table if not exists events
     lon                real          not null,
     paid               boolean       not null,
     participant_limit  integer       not null,
+    confirmed_requests bigint        not null default 0,
     published_on       timestamp,
     request_moderation boolean       not null,
+    queued_admission   boolean       not null default false,
     state              varchar(20)   not null,
     title              varchar(120)  not null
 );
 
+alter table events add column if not exists queued_admission boolean not null default false;
+
 create table if not exists requests
 (
     id           bigint generated by default as identity primary key,
@@ -42,6 +46,13 @@ create table if not exists requests
     constraint request_unique unique (event_id, requester_id)
 );
 
+create table if not exists event_views
+(
+    event_id     bigint    not null primary key references events (id) on delete cascade,
+    views        bigint    not null,
+    refreshed_on timestamp not null
+);
+
 create table if not exists compilations
 (
     id     bigint generated by default as identity primary key,
@@ -56,10 +67,13 @@ create table if not exists compilation_events
     primary key (compilation_id, event_id)
 );
 
-create index if not exists idx_events_event_date on events (event_date);
+drop index if exists idx_events_event_date;
+create index if not exists idx_events_event_date_id on events (event_date, id);
 create index if not exists idx_events_state on events (state);
 create index if not exists idx_events_category_id on events (category_id);
 create index if not exists idx_events_initiator_id on events (initiator_id);
-create index if not exists idx_requests_event_id on requests (event_id);
-create index if not exists idx_requests_requester_id on requests (requester_id);
-
+create index if not exists idx_event_views_views on event_views (views);
+drop index if exists idx_requests_event_id;
+drop index if exists idx_requests_requester_id;
+create index if not exists idx_requests_event_id_id on requests (event_id, id);
+create index if not exists idx_requests_requester_id_id on requests (requester_id, id);
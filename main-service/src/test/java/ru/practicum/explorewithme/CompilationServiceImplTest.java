@@ -0,0 +1,150 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.category.dto.CategoryDto;
+import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.category.service.CategoryService;
+import ru.practicum.explorewithme.compilation.dto.CompilationDto;
+import ru.practicum.explorewithme.compilation.dto.NewCompilationDto;
+import ru.practicum.explorewithme.compilation.dto.UpdateCompilationRequest;
+import ru.practicum.explorewithme.compilation.repository.CompilationRepository;
+import ru.practicum.explorewithme.compilation.service.CompilationService;
+import ru.practicum.explorewithme.event.dto.EventShortDto;
+import ru.practicum.explorewithme.event.dto.UpdateEventAdminRequest;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.service.EventService;
+import ru.practicum.explorewithme.location.Location;
+import ru.practicum.explorewithme.user.model.User;
+import ru.practicum.explorewithme.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CompilationServiceImplTest {
+
+    @Autowired
+    private CompilationService compilationService;
+
+    @Autowired
+    private CompilationRepository compilationRepository;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Category category;
+    private Event event;
+    private CompilationDto compilation;
+
+    @BeforeEach
+    void setUp() {
+        User initiator = userRepository.save(User.builder().name("initiator").email("initiator@mail.ru").build());
+        category = categoryRepository.save(Category.builder().name("concerts").build());
+        event = eventRepository.save(Event.builder()
+                .annotation("Annotation of a popular event")
+                .category(category)
+                .createdOn(LocalDateTime.now())
+                .description("Description of a popular event")
+                .eventDate(LocalDateTime.now().plusDays(7))
+                .initiator(initiator)
+                .location(new Location(55.75f, 37.62f))
+                .paid(false)
+                .participantLimit(0)
+                .publishedOn(LocalDateTime.now())
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .title("Popular event")
+                .build());
+        compilation = compilationService.createCompilation(NewCompilationDto.builder()
+                .events(Set.of(event.getId()))
+                .pinned(true)
+                .title("Summer")
+                .build());
+    }
+
+    @Test
+    void pinnedPagesAreCachedUntilCompilationChanges() {
+        assertThat(pinnedTitles(), equalTo(List.of("Summer")));
+
+        // Changed behind the service, so the cached page is still served
+        transactionTemplate.executeWithoutResult(status ->
+                compilationRepository.findById(compilation.getId()).orElseThrow().setTitle("Winter"));
+        assertThat(pinnedTitles(), equalTo(List.of("Summer")));
+
+        compilationService.updateCompilation(compilation.getId(),
+                UpdateCompilationRequest.builder().title("Autumn").build());
+        assertThat(pinnedTitles(), equalTo(List.of("Autumn")));
+
+        compilationService.createCompilation(NewCompilationDto.builder().pinned(true).title("Spring").build());
+        assertThat(pinnedTitles(), equalTo(List.of("Autumn", "Spring")));
+
+        compilationService.deleteCompilation(compilation.getId());
+        assertThat(pinnedTitles(), equalTo(List.of("Spring")));
+    }
+
+    @Test
+    void eventUpdateDropsPinnedPages() {
+        assertThat(pinnedEvent().getTitle(), equalTo("Popular event"));
+
+        eventService.updateEventByAdmin(event.getId(),
+                UpdateEventAdminRequest.builder().title("Renamed event").build());
+
+        assertThat(pinnedEvent().getTitle(), equalTo("Renamed event"));
+    }
+
+    @Test
+    void categoryUpdateDropsPinnedPagesAfterCommit() {
+        assertThat(pinnedEvent().getCategory().getName(), equalTo("concerts"));
+
+        String inTransaction = transactionTemplate.execute(status -> {
+            categoryService.updateCategory(category.getId(), CategoryDto.builder().name("theatre").build());
+            return pinnedEvent().getCategory().getName();
+        });
+
+        assertThat(inTransaction, equalTo("concerts"));
+        assertThat(pinnedEvent().getCategory().getName(), equalTo("theatre"));
+    }
+
+    private List<String> pinnedTitles() {
+        return compilationService.getCompilations(true, 0, 10).stream()
+                .map(CompilationDto::getTitle)
+                .collect(Collectors.toList());
+    }
+
+    private EventShortDto pinnedEvent() {
+        List<CompilationDto> pinned = compilationService.getCompilations(true, 0, 10);
+        assertThat(pinned, hasSize(1));
+        assertThat(pinned.get(0).getEvents(), hasSize(1));
+        return pinned.get(0).getEvents().iterator().next();
+    }
+}
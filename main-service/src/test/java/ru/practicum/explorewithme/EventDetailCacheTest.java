@@ -0,0 +1,130 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.category.dto.CategoryDto;
+import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.category.service.CategoryService;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.service.EventDetailCache;
+import ru.practicum.explorewithme.location.Location;
+import ru.practicum.explorewithme.user.model.User;
+import ru.practicum.explorewithme.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventDetailCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EventDetailCache eventDetailCache;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Category category;
+    private Event event;
+
+    @BeforeEach
+    void setUp() {
+        User initiator = userRepository.save(User.builder().name("initiator").email("initiator@mail.ru").build());
+        category = categoryRepository.save(Category.builder().name("concerts").build());
+        event = eventRepository.save(Event.builder()
+                .annotation("Annotation of a popular event")
+                .category(category)
+                .createdOn(LocalDateTime.now())
+                .description("Description of a popular event")
+                .eventDate(LocalDateTime.now().plusDays(7))
+                .initiator(initiator)
+                .location(new Location(55.75f, 37.62f))
+                .paid(false)
+                .participantLimit(0)
+                .publishedOn(LocalDateTime.now())
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .title("Popular event")
+                .build());
+    }
+
+    @Test
+    void getEventByIdAnswersNotModifiedForMatchingEtag() throws Exception {
+        String etag = mockMvc.perform(get("/events/{id}", event.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/events/{id}", event.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        categoryService.updateCategory(category.getId(), CategoryDto.builder().name("theatre").build());
+
+        mockMvc.perform(get("/events/{id}", event.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category.name").value("theatre"));
+    }
+
+    @Test
+    void categoryUpdateEvictsEventsAfterCommit() {
+        eventDetailCache.get(event.getId());
+
+        String inTransaction = transactionTemplate.execute(status -> {
+            categoryService.updateCategory(category.getId(), CategoryDto.builder().name("theatre").build());
+            return eventDetailCache.get(event.getId()).getCategory().getName();
+        });
+
+        assertThat(inTransaction, equalTo("concerts"));
+        assertThat(eventDetailCache.get(event.getId()).getCategory().getName(), equalTo("theatre"));
+    }
+
+    @Test
+    void rolledBackCategoryUpdateKeepsCachedEvents() {
+        eventDetailCache.get(event.getId());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            categoryService.updateCategory(category.getId(), CategoryDto.builder().name("theatre").build());
+            eventDetailCache.invalidate(event.getId());
+            status.setRollbackOnly();
+        });
+        categoryRepository.save(Category.builder().id(category.getId()).name("opera").build());
+
+        assertThat(eventDetailCache.get(event.getId()).getCategory().getName(), equalTo("concerts"));
+    }
+}
@@ -0,0 +1,104 @@
+package ru.practicum.explorewithme;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.explorewithme.event.service.EventFanOut;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+class EventFanOutTest {
+    private static final long DEADLINE_MS = 200;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private EventFanOut fanOut;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        fanOut.destroy();
+    }
+
+    @Test
+    void awaitGivesUpOnSlowBranchAtDeadlineAndSurvivesFailingBranch() throws Exception {
+        fanOut = fanOut(4, 10);
+        CompletableFuture<Void> slow = fanOut.submit("slow", this::block);
+        CompletableFuture<Void> failing = fanOut.submit("failing", () -> {
+            throw new IllegalStateException("stats server is down");
+        });
+
+        long started = System.nanoTime();
+        fanOut.await("failing", failing);
+        fanOut.await("slow", slow);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        assertThat(waitedMs, greaterThanOrEqualTo(DEADLINE_MS));
+        assertThat(waitedMs, lessThan(DEADLINE_MS * 5));
+        assertThat(failing.isCompletedExceptionally(), equalTo(true));
+        assertThat(slow.isDone(), equalTo(false));
+        assertThat(timer("failing").count(), equalTo(1L));
+
+        // The slow branch keeps running after the deadline and is timed once it is done
+        release.countDown();
+        slow.get(5, TimeUnit.SECONDS);
+        assertThat(timer("slow").count(), equalTo(1L));
+        assertThat(timer("slow").totalTime(TimeUnit.MILLISECONDS), greaterThanOrEqualTo((double) DEADLINE_MS));
+    }
+
+    @Test
+    void saturatedPoolRunsBranchOnCallingThread() {
+        fanOut = fanOut(1, 1);
+        fanOut.submit("busy", this::block);
+        fanOut.submit("queued", () -> { });
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        CompletableFuture<Void> rejected = fanOut.submit("rejected", () -> ranOn.set(Thread.currentThread()));
+
+        assertThat(rejected.isDone(), equalTo(true));
+        assertThat(ranOn.get(), sameInstance(Thread.currentThread()));
+        assertThat(timer("rejected").count(), equalTo(1L));
+    }
+
+    @Test
+    void timeRecordsEachBranchSeparately() {
+        fanOut = fanOut(1, 1);
+
+        assertThat(fanOut.time("query", () -> 42), equalTo(42));
+        fanOut.time("views", () -> null);
+        fanOut.time("views", () -> null);
+
+        assertThat(timer("query").count(), equalTo(1L));
+        assertThat(timer("views").count(), equalTo(2L));
+    }
+
+    private EventFanOut fanOut(int poolSize, int queueCapacity) {
+        return new EventFanOut(poolSize, queueCapacity, DEADLINE_MS,
+                new StaticListableBeanFactory(Map.of("registry", registry)).getBeanProvider(MeterRegistry.class));
+    }
+
+    private Timer timer(String branch) {
+        return registry.get("events.public.branch").tag("branch", branch).timer();
+    }
+
+    private void block() {
+        try {
+            release.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.event.dto.EventFullDto;
+import ru.practicum.explorewithme.event.dto.EventShortDto;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.service.EventService;
+import ru.practicum.explorewithme.exception.BadRequestException;
+import ru.practicum.explorewithme.location.Location;
+import ru.practicum.explorewithme.user.model.User;
+import ru.practicum.explorewithme.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "event-views.initial-delay-ms=3600000")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventServiceImplTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String FIRST = "1970-01-01 00:00:00,0";
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private User initiator;
+    private Category category;
+    private List<Event> events;
+
+    @BeforeEach
+    void setUp() {
+        initiator = userRepository.save(User.builder().name("initiator").email("initiator@mail.ru").build());
+        category = categoryRepository.save(Category.builder().name("concerts").build());
+        // Ids and event dates disagree, so the two orders can be told apart
+        events = Stream.of(5, 1, 4, 2, 3, 2)
+                .map(days -> saveEvent(LocalDateTime.now().plusDays(days).truncatedTo(ChronoUnit.SECONDS)))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    void getEventsByAdminPagesByCursor() {
+        List<Long> paged = walk(after -> eventService.getEventsByAdmin(null, null, null, null, null, 0, 4, after)
+                .stream().map(event -> cursor(event.getEventDate(), event.getId())).collect(Collectors.toList()), 4);
+
+        assertThat(paged, equalTo(idsByEventDate()));
+    }
+
+    @Test
+    void getEventsByAdminWithoutCursorKeepsIdOrder() {
+        List<Long> ids = eventService.getEventsByAdmin(null, null, null, null, null, 0, 10, null).stream()
+                .map(EventFullDto::getId)
+                .collect(Collectors.toList());
+
+        assertThat(ids, equalTo(events.stream().map(Event::getId).collect(Collectors.toList())));
+    }
+
+    @Test
+    void getEventsByUserPagesByCursor() {
+        List<Long> paged = walk(after -> eventService.getEventsByUser(initiator.getId(), 0, 4, after).stream()
+                .map(event -> cursor(event.getEventDate(), event.getId())).collect(Collectors.toList()), 4);
+
+        assertThat(paged, equalTo(idsByEventDate()));
+        assertThat(eventService.getEventsByUser(initiator.getId(), 0, 10, null).stream()
+                        .map(EventShortDto::getId)
+                        .collect(Collectors.toList()),
+                equalTo(events.stream().map(Event::getId).collect(Collectors.toList())));
+    }
+
+    @Test
+    void getPublicEventsPagesByCursor() {
+        List<Long> paged = walk(after -> eventService.getPublicEvents(null, null, null, null, null, false, null,
+                0, 4, after, "127.0.0.1", "/events").stream()
+                .map(event -> cursor(event.getEventDate(), event.getId())).collect(Collectors.toList()), 4);
+
+        assertThat(paged, equalTo(idsByEventDate()));
+    }
+
+    @Test
+    void getPublicEventsKeepsOnlyAvailableEventsWhenAsked() {
+        setLimit(events.get(0), 2, 2);
+        setLimit(events.get(1), 2, 1);
+        setLimit(events.get(2), 0, 5);
+
+        List<Long> available = publicIds(null, true);
+
+        assertThat(available.contains(events.get(0).getId()), equalTo(false));
+        assertThat(available.containsAll(List.of(events.get(1).getId(), events.get(2).getId())), equalTo(true));
+        assertThat(available.size(), equalTo(events.size() - 1));
+        assertThat(publicIds(null, false).size(), equalTo(events.size()));
+    }
+
+    @Test
+    void getPublicEventsSearchesAnnotationAndDescriptionIgnoringCase() {
+        Event inAnnotation = events.get(0);
+        inAnnotation.setAnnotation("An evening of live Jazz in the park");
+        Event inDescription = events.get(3);
+        inDescription.setDescription("Free entry, JAZZ quartet from eight");
+        eventRepository.saveAll(List.of(inAnnotation, inDescription));
+
+        assertThat(publicIds("jazz", false), containsInAnyOrder(inAnnotation.getId(), inDescription.getId()));
+        assertThat(publicIds("opera", false), empty());
+        assertThat(publicIds("", false).size(), equalTo(events.size()));
+    }
+
+    @Test
+    void invalidCursorIsRejected() {
+        assertThrows(BadRequestException.class,
+                () -> eventService.getEventsByAdmin(null, null, null, null, null, 0, 10, "not-a-cursor"));
+        assertThrows(BadRequestException.class,
+                () -> eventService.getEventsByUser(initiator.getId(), 0, 10, "2030-01-01 10:00:00"));
+        assertThrows(BadRequestException.class, () -> eventService.getPublicEvents(null, null, null, null, null,
+                false, null, 0, 10, "2030-01-01 10:00:00,x", "127.0.0.1", "/events"));
+        assertThrows(BadRequestException.class, () -> eventService.getPublicEvents(null, null, null, null, null,
+                false, "VIEWS", 0, 10, FIRST, "127.0.0.1", "/events"));
+    }
+
+    /**
+     * Reads pages starting from the first event, each after the last cursor of the previous one.
+     */
+    private static List<Long> walk(Function<String, List<String>> page, int size) {
+        List<Long> ids = new ArrayList<>();
+        String after = FIRST;
+        List<String> cursors;
+        do {
+            cursors = page.apply(after);
+            for (String cursor : cursors) {
+                ids.add(Long.parseLong(cursor.substring(cursor.lastIndexOf(',') + 1)));
+            }
+            after = cursors.isEmpty() ? after : cursors.get(cursors.size() - 1);
+        } while (cursors.size() == size);
+        return ids;
+    }
+
+    private List<Long> publicIds(String text, boolean onlyAvailable) {
+        return eventService.getPublicEvents(text, null, null, null, null, onlyAvailable, null, 0, 10, null,
+                        "127.0.0.1", "/events").stream()
+                .map(EventShortDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void setLimit(Event event, int participantLimit, long confirmedRequests) {
+        event.setParticipantLimit(participantLimit);
+        eventRepository.save(event);
+        transactionTemplate.executeWithoutResult(status ->
+                eventRepository.addConfirmedRequests(event.getId(), confirmedRequests));
+    }
+
+    private static String cursor(LocalDateTime eventDate, Long id) {
+        return eventDate.format(FORMATTER) + "," + id;
+    }
+
+    private List<Long> idsByEventDate() {
+        return events.stream()
+                .sorted(Comparator.comparing(Event::getEventDate).thenComparing(Event::getId))
+                .map(Event::getId)
+                .collect(Collectors.toList());
+    }
+
+    private Event saveEvent(LocalDateTime eventDate) {
+        return eventRepository.save(Event.builder()
+                .annotation("Annotation of a popular event")
+                .category(category)
+                .createdOn(LocalDateTime.now())
+                .description("Description of a popular event")
+                .eventDate(eventDate)
+                .initiator(initiator)
+                .location(new Location(55.75f, 37.62f))
+                .paid(false)
+                .participantLimit(0)
+                .publishedOn(LocalDateTime.now())
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .title("Popular event")
+                .build());
+    }
+}
@@ -0,0 +1,162 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.client.StatsClient;
+import ru.practicum.explorewithme.client.StatsResult;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.model.EventViews;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.event.repository.EventViewsRepository;
+import ru.practicum.explorewithme.event.service.EventViewsRefresher;
+import ru.practicum.explorewithme.location.Location;
+import ru.practicum.explorewithme.user.model.User;
+import ru.practicum.explorewithme.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "event-views.initial-delay-ms=3600000")
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class EventViewsRefresherTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EventViewsRefresher refresher;
+
+    @Autowired
+    private EventViewsRepository eventViewsRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @MockBean
+    private StatsClient statsClient;
+
+    private User initiator;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        initiator = userRepository.save(User.builder().name("initiator").email("initiator@mail.ru").build());
+        category = categoryRepository.save(Category.builder().name("concerts").build());
+    }
+
+    @Test
+    void refreshStoresReportedViewsAndListingSortsByThem() throws Exception {
+        Event unseen = saveEvent("Unseen event");
+        Event popular = saveEvent("Popular event");
+        Event seen = saveEvent("Seen event");
+        when(statsClient.getStats(any(), any(), anyList(), eq(true)))
+                .thenReturn(live(views(popular, 5), views(seen, 2)));
+
+        refresher.refresh();
+
+        assertThat(viewsOf(popular), equalTo(5L));
+        assertThat(viewsOf(seen), equalTo(2L));
+        assertThat(eventViewsRepository.existsById(unseen.getId()), equalTo(false));
+        mockMvc.perform(get("/events").param("sort", "VIEWS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(
+                        popular.getId().intValue(), seen.getId().intValue(), unseen.getId().intValue())));
+    }
+
+    @Test
+    void fallbackViewsAreNotStoredAndSweepIsRepeated() {
+        Event event = saveEvent("Popular event");
+        when(statsClient.getStats(any(), any(), anyList(), eq(true)))
+                .thenReturn(new StatsResult(List.of(views(event, 9)), true, List.of()));
+
+        refresher.refresh();
+        assertThat(eventViewsRepository.count(), equalTo(0L));
+
+        when(statsClient.getStats(any(), any(), anyList(), eq(true))).thenReturn(live(views(event, 3)));
+        refresher.refresh();
+
+        assertThat(viewsOf(event), equalTo(3L));
+    }
+
+    @Test
+    void laterRefreshReadsOnlyEventsHitSinceThePreviousOne() {
+        Event hit = saveEvent("Hit event");
+        saveEvent("Quiet event");
+        when(statsClient.getStats(any(), any(), anyList(), eq(true))).thenReturn(live());
+        refresher.refresh();
+
+        when(statsClient.getStats(any(), any(), isNull(), eq(false))).thenReturn(live(
+                new ViewStatsDto("ewm-main-service", "/events/" + hit.getId(), 4L),
+                new ViewStatsDto("ewm-main-service", "/events", 10L)));
+        when(statsClient.getStats(any(), any(), eq(List.of("/events/" + hit.getId())), eq(true)))
+                .thenReturn(live(views(hit, 1)));
+        refresher.refresh();
+
+        verify(statsClient).getStats(any(), any(), eq(List.of("/events/" + hit.getId())), eq(true));
+        assertThat(viewsOf(hit), equalTo(1L));
+        assertThat(eventViewsRepository.count(), equalTo(1L));
+    }
+
+    private long viewsOf(Event event) {
+        EventViews views = eventViewsRepository.findById(event.getId()).orElse(null);
+        assertThat(views, notNullValue());
+        return views.getViews();
+    }
+
+    private static StatsResult live(ViewStatsDto... stats) {
+        return new StatsResult(List.of(stats), false, List.of());
+    }
+
+    private static ViewStatsDto views(Event event, long hits) {
+        return new ViewStatsDto("ewm-main-service", "/events/" + event.getId(), hits);
+    }
+
+    private Event saveEvent(String title) {
+        return eventRepository.save(Event.builder()
+                .annotation("Annotation of " + title)
+                .category(category)
+                .createdOn(LocalDateTime.now())
+                .description("Description of " + title)
+                .eventDate(LocalDateTime.now().plusDays(7))
+                .initiator(initiator)
+                .location(new Location(55.75f, 37.62f))
+                .paid(false)
+                .participantLimit(0)
+                .publishedOn(LocalDateTime.now())
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .title(title)
+                .build());
+    }
+}
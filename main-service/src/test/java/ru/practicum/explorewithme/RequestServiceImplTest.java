@@ -0,0 +1,289 @@
+package ru.practicum.explorewithme;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.explorewithme.category.model.Category;
+import ru.practicum.explorewithme.category.repository.CategoryRepository;
+import ru.practicum.explorewithme.event.model.Event;
+import ru.practicum.explorewithme.event.model.EventState;
+import ru.practicum.explorewithme.event.repository.EventRepository;
+import ru.practicum.explorewithme.exception.ConflictException;
+import ru.practicum.explorewithme.exception.NotFoundException;
+import ru.practicum.explorewithme.location.Location;
+import ru.practicum.explorewithme.request.dto.EventRequestStatusUpdateRequest;
+import ru.practicum.explorewithme.request.dto.EventRequestStatusUpdateResult;
+import ru.practicum.explorewithme.request.dto.ParticipationRequestDto;
+import ru.practicum.explorewithme.request.model.RequestStatus;
+import ru.practicum.explorewithme.request.repository.RequestRepository;
+import ru.practicum.explorewithme.request.service.RequestService;
+import ru.practicum.explorewithme.user.model.User;
+import ru.practicum.explorewithme.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class RequestServiceImplTest {
+    private static final int PARTICIPANT_LIMIT = 10;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User initiator;
+    private Category category;
+
+    @BeforeEach
+    void setUp() {
+        initiator = userRepository.save(User.builder().name("initiator").email("initiator@mail.ru").build());
+        category = categoryRepository.save(Category.builder().name("concerts").build());
+    }
+
+    @Test
+    void createRequestNeverExceedsParticipantLimit() throws Exception {
+        Event event = saveEvent(false);
+        List<User> users = saveUsers(100);
+
+        List<Callable<Boolean>> signUps = new ArrayList<>();
+        for (User user : users) {
+            signUps.add(() -> {
+                try {
+                    requestService.createRequest(user.getId(), event.getId());
+                    return true;
+                } catch (ConflictException e) {
+                    return false;
+                }
+            });
+        }
+
+        assertThat(countSucceeded(runConcurrently(signUps)), equalTo((long) PARTICIPANT_LIMIT));
+        assertLimitReached(event);
+    }
+
+    @Test
+    void updateRequestStatusNeverExceedsParticipantLimit() throws Exception {
+        Event event = saveEvent(true);
+        List<Long> requestIds = new ArrayList<>();
+        for (User user : saveUsers(40)) {
+            requestIds.add(requestService.createRequest(user.getId(), event.getId()).getId());
+        }
+
+        List<Callable<Long>> moderations = new ArrayList<>();
+        for (int i = 0; i < requestIds.size(); i += 4) {
+            EventRequestStatusUpdateRequest update = new EventRequestStatusUpdateRequest(
+                    requestIds.subList(i, i + 4), RequestStatus.CONFIRMED, null);
+            moderations.add(() -> {
+                try {
+                    EventRequestStatusUpdateResult result =
+                            requestService.updateRequestStatus(initiator.getId(), event.getId(), update);
+                    return (long) result.getConfirmedRequests().size();
+                } catch (ConflictException e) {
+                    return 0L;
+                }
+            });
+        }
+
+        long confirmed = 0;
+        for (Future<Long> result : runConcurrently(moderations)) {
+            confirmed += result.get();
+        }
+        assertThat(confirmed, equalTo((long) PARTICIPANT_LIMIT));
+        assertLimitReached(event);
+    }
+
+    @Test
+    void updateRequestStatusRejectsRemainingOnceFull() {
+        Event event = saveEvent(true);
+        List<Long> requestIds = new ArrayList<>();
+        for (User user : saveUsers(PARTICIPANT_LIMIT + 5)) {
+            requestIds.add(requestService.createRequest(user.getId(), event.getId()).getId());
+        }
+
+        EventRequestStatusUpdateResult result = requestService.updateRequestStatus(initiator.getId(), event.getId(),
+                new EventRequestStatusUpdateRequest(requestIds.subList(0, PARTICIPANT_LIMIT + 2),
+                        RequestStatus.CONFIRMED, true));
+
+        assertThat(result.getConfirmedRequests().size(), equalTo(PARTICIPANT_LIMIT));
+        assertThat(result.getRejectedRequests().size(), equalTo(2));
+        assertThat(requestRepository.findPendingIds(requestIds).size(), equalTo(0));
+        assertLimitReached(event);
+    }
+
+    @Test
+    void updateRequestStatusFailsForUnknownOrForeignRequests() {
+        Event event = saveEvent(true);
+        Event otherEvent = saveEvent(true);
+        List<User> users = saveUsers(2);
+        Long requestId = requestService.createRequest(users.get(0).getId(), event.getId()).getId();
+        Long foreignId = requestService.createRequest(users.get(1).getId(), otherEvent.getId()).getId();
+
+        assertThrows(NotFoundException.class, () -> requestService.updateRequestStatus(initiator.getId(),
+                event.getId(), new EventRequestStatusUpdateRequest(List.of(requestId, foreignId),
+                        RequestStatus.CONFIRMED, false)));
+        assertThrows(NotFoundException.class, () -> requestService.updateRequestStatus(initiator.getId(),
+                event.getId(), new EventRequestStatusUpdateRequest(List.of(requestId, foreignId + 100),
+                        RequestStatus.REJECTED, false)));
+
+        assertThat(requestRepository.findPendingIds(List.of(requestId, foreignId)).size(), equalTo(2));
+        assertThat(eventRepository.findConfirmedRequests(event.getId()).orElseThrow(), equalTo(0L));
+    }
+
+    @Test
+    void getEventRequestsByKeysetPages() {
+        Event event = saveEvent(true);
+        List<Long> requestIds = new ArrayList<>();
+        for (User user : saveUsers(7)) {
+            requestIds.add(requestService.createRequest(user.getId(), event.getId()).getId());
+        }
+
+        List<Long> pagedIds = new ArrayList<>();
+        Long after = null;
+        List<ParticipationRequestDto> page;
+        do {
+            page = requestService.getEventRequests(initiator.getId(), event.getId(), after, 3);
+            page.forEach(request -> pagedIds.add(request.getId()));
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == 3);
+
+        assertThat(pagedIds, equalTo(requestIds));
+        assertThat(requestService.getEventRequests(initiator.getId(), event.getId(), null, null).size(),
+                equalTo(requestIds.size()));
+    }
+
+    @Test
+    void queuedAdmissionNeverExceedsParticipantLimit() throws Exception {
+        Event event = saveEvent(false);
+        event.setQueuedAdmission(true);
+        eventRepository.save(event);
+        List<User> users = saveUsers(30);
+
+        List<Callable<ParticipationRequestDto>> signUps = new ArrayList<>();
+        for (User user : users) {
+            signUps.add(() -> requestService.createRequest(user.getId(), event.getId()));
+        }
+        List<Long> requestIds = new ArrayList<>();
+        for (Future<ParticipationRequestDto> result : runConcurrently(signUps)) {
+            assertThat(result.get().getStatus(), equalTo(RequestStatus.PENDING));
+            requestIds.add(result.get().getId());
+        }
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (requestRepository.findPendingIds(requestIds).size() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(requestRepository.findPendingIds(requestIds).size(), equalTo(0));
+        assertLimitReached(event);
+    }
+
+    @Test
+    void cancelRequestFreesSlot() {
+        Event event = saveEvent(false);
+        List<User> users = saveUsers(PARTICIPANT_LIMIT + 1);
+        List<ParticipationRequestDto> requests = new ArrayList<>();
+        for (User user : users.subList(0, PARTICIPANT_LIMIT)) {
+            requests.add(requestService.createRequest(user.getId(), event.getId()));
+        }
+
+        requestService.cancelRequest(users.get(0).getId(), requests.get(0).getId());
+        ParticipationRequestDto last = requestService.createRequest(users.get(PARTICIPANT_LIMIT).getId(),
+                event.getId());
+
+        assertThat(last.getStatus(), equalTo(RequestStatus.CONFIRMED));
+        assertLimitReached(event);
+    }
+
+    private Event saveEvent(boolean requestModeration) {
+        return eventRepository.save(Event.builder()
+                .annotation("Annotation of a popular event")
+                .category(category)
+                .createdOn(LocalDateTime.now())
+                .description("Description of a popular event")
+                .eventDate(LocalDateTime.now().plusDays(7))
+                .initiator(initiator)
+                .location(new Location(55.75f, 37.62f))
+                .paid(false)
+                .participantLimit(PARTICIPANT_LIMIT)
+                .publishedOn(LocalDateTime.now())
+                .requestModeration(requestModeration)
+                .state(EventState.PUBLISHED)
+                .title("Popular event")
+                .build());
+    }
+
+    private List<User> saveUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(userRepository.save(User.builder().name("user" + i).email("user" + i + "@mail.ru").build()));
+        }
+        return users;
+    }
+
+    private <T> List<Future<T>> runConcurrently(List<Callable<T>> tasks) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<T>> results = new ArrayList<>();
+            for (Callable<T> task : tasks) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            executor.shutdown();
+            assertThat(executor.awaitTermination(1, TimeUnit.MINUTES), equalTo(true));
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long countSucceeded(List<Future<Boolean>> results) throws Exception {
+        long succeeded = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                succeeded++;
+            }
+        }
+        return succeeded;
+    }
+
+    private void assertLimitReached(Event event) {
+        Long confirmedRows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM requests WHERE event_id = ? AND status = 'CONFIRMED'", Long.class, event.getId());
+        assertThat(confirmedRows, equalTo((long) PARTICIPANT_LIMIT));
+        assertThat(eventRepository.findConfirmedRequests(event.getId()).orElseThrow(),
+                equalTo((long) PARTICIPANT_LIMIT));
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.explorewithme.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fails calls fast after {@code failureThreshold} consecutive failures. Once {@code openDuration} has passed
+ * a single trial call is let through: its success closes the breaker, its failure opens it again.
+ */
+class CircuitBreaker {
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicLong rejected = new AtomicLong();
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMs * 1_000_000;
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            return true;
+        }
+        if (state != State.CLOSED) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+    }
+
+    synchronized void onFailure() {
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+}
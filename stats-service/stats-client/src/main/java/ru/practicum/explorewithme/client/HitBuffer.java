@@ -0,0 +1,119 @@
+package ru.practicum.explorewithme.client;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.practicum.explorewithme.dto.EndpointHitDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of hits shipped to stats-server by a single background sender,
+ * either when a full batch has accumulated or when the flush interval elapses.
+ * A batch that could not be delivered goes back into the queue as far as capacity allows and is retried
+ * on the next flush; only hits that do not fit, are rejected by stats-server or are left on close are dropped.
+ */
+@Slf4j
+class HitBuffer implements AutoCloseable {
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int batchSize;
+    private final Consumer<List<EndpointHitDto>> sender;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    HitBuffer(int capacity, int batchSize, long flushIntervalMs, Consumer<List<EndpointHitDto>> sender) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.sender = sender;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-hit-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    void offer(EndpointHitDto hit) {
+        if (!queue.offer(hit)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    long getSent() {
+        return sent.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    int getQueued() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        dropped.addAndGet(queue.drainTo(new ArrayList<>()));
+        log.info("Hit buffer closed: sent={}, dropped={}", sent.get(), dropped.get());
+    }
+
+    private synchronized void flush() {
+        flushRequested.set(false);
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                sender.accept(batch);
+                sent.addAndGet(batch.size());
+            } catch (HttpClientErrorException e) {
+                dropped.addAndGet(batch.size());
+                log.error("stats-server rejected {} hits: {}", batch.size(), e.getMessage());
+            } catch (Exception e) {
+                int requeued = requeue(batch);
+                dropped.addAndGet(batch.size() - requeued);
+                log.warn("Failed to send {} hits, {} queued for retry: {}", batch.size(), requeued, e.getMessage());
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private int requeue(List<EndpointHitDto> batch) {
+        int requeued = 0;
+        for (EndpointHitDto hit : batch) {
+            if (!queue.offer(hit)) {
+                break;
+            }
+            requeued++;
+        }
+        return requeued;
+    }
+}
@@ -1,37 +1,119 @@
 package ru.practicum.explorewithme.client;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
+import ru.practicum.explorewithme.dto.HitBatchResultDto;
+import ru.practicum.explorewithme.dto.StatsQueryDto;
 import ru.practicum.explorewithme.dto.ViewStatsDto;
 
 import org.springframework.web.util.UriComponentsBuilder;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
-public class StatsClient {
+@Slf4j
+public class StatsClient implements DisposableBean {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private final RestTemplate restTemplate;
     private final String serverUrl;
+    private final HitBuffer hitBuffer;
+    private final int postQueryThreshold;
+    private final CircuitBreaker circuitBreaker;
+    // Last stats received for each (uri, unique, start, end), served for the same request when stats-server is down
+    private final Cache<List<Object>, List<ViewStatsDto>> lastKnownStats;
+    private final AtomicLong fallbacks = new AtomicLong();
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(@Value("${stats-server.url}") String serverUrl,
+                       @Value("${stats-client.async.enabled:false}") boolean asyncEnabled,
+                       @Value("${stats-client.async.capacity:10000}") int capacity,
+                       @Value("${stats-client.async.batch-size:100}") int batchSize,
+                       @Value("${stats-client.async.flush-interval-ms:1000}") long flushIntervalMs,
+                       @Value("${stats-client.post-query-threshold:50}") int postQueryThreshold,
+                       @Value("${stats-client.connect-timeout:1s}") Duration connectTimeout,
+                       @Value("${stats-client.read-timeout:2s}") Duration readTimeout,
+                       @Value("${stats-client.breaker.failure-threshold:5}") int failureThreshold,
+                       @Value("${stats-client.breaker.open-ms:10000}") long openMs,
+                       @Value("${stats-client.fallback.max-size:100000}") long fallbackMaxSize,
+                       RestTemplateBuilder builder,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
         this.serverUrl = serverUrl;
+        this.postQueryThreshold = postQueryThreshold;
         this.restTemplate = builder
-                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                .requestFactory(HttpComponentsClientHttpRequestFactory.class)
+                .setConnectTimeout(connectTimeout)
+                .setReadTimeout(readTimeout)
                 .build();
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMs);
+        this.lastKnownStats = Caffeine.newBuilder()
+                .maximumSize(fallbackMaxSize)
+                .build();
+        this.hitBuffer = asyncEnabled
+                ? new HitBuffer(capacity, batchSize, flushIntervalMs, this::saveHits)
+                : null;
+        meterRegistry.ifAvailable(this::bindMetrics);
     }
 
     public void saveHit(EndpointHitDto endpointHitDto) {
-        restTemplate.postForEntity(serverUrl + "/hit", endpointHitDto, Object.class);
+        if (hitBuffer != null) {
+            hitBuffer.offer(endpointHitDto);
+            return;
+        }
+        call(() -> restTemplate.postForEntity(serverUrl + "/hit", endpointHitDto, Object.class));
     }
 
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+    public void saveHits(List<EndpointHitDto> endpointHitDtos) {
+        call(() -> restTemplate.postForEntity(serverUrl + "/hits", endpointHitDtos, HitBatchResultDto.class));
+    }
+
+    /**
+     * Returns stats from stats-server. If it cannot be reached, is failing or the circuit breaker is open,
+     * the stats last received for the same URIs and range are returned instead, marked as a fallback.
+     * Without URIs there is nothing to fall back to and the failure is thrown.
+     */
+    public StatsResult getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        try {
+            List<ViewStatsDto> stats = call(() -> fetchStats(start, end, uris, unique));
+            remember(start, end, uris, unique, stats);
+            return StatsResult.live(stats);
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            if (uris == null || uris.isEmpty()) {
+                throw e;
+            }
+            fallbacks.incrementAndGet();
+            log.warn("Serving last known stats for {} uris: {}", uris.size(), e.getMessage());
+            return lastKnown(start, end, uris, unique);
+        }
+    }
+
+    private List<ViewStatsDto> fetchStats(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                          Boolean unique) {
+        if (uris != null && uris.size() > postQueryThreshold) {
+            return queryStats(start, end, uris, unique);
+        }
         UriComponentsBuilder builder = UriComponentsBuilder
                 .fromHttpUrl(serverUrl + "/stats")
                 .queryParam("start", start.format(FORMATTER))
@@ -50,5 +132,97 @@ public class StatsClient {
 
         return response.getBody() != null ? List.of(response.getBody()) : List.of();
     }
-}
 
+    private List<ViewStatsDto> queryStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .unique(unique)
+                .build();
+        ResponseEntity<ViewStatsDto[]> response = restTemplate.postForEntity(serverUrl + "/stats/query", query,
+                ViewStatsDto[].class);
+
+        return response.getBody() != null ? List.of(response.getBody()) : List.of();
+    }
+
+    private <T> T call(Supplier<T> request) {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new ResourceAccessException("Stats server circuit breaker is open");
+        }
+        try {
+            T result = request.get();
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (HttpClientErrorException e) {
+            // A rejected request says nothing about the health of stats-server
+            circuitBreaker.onSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            circuitBreaker.onFailure();
+            throw e;
+        }
+    }
+
+    private void remember(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                          List<ViewStatsDto> stats) {
+        if (uris == null || uris.isEmpty()) {
+            return;
+        }
+        Map<String, List<ViewStatsDto>> byUri = stats.stream()
+                .collect(Collectors.groupingBy(ViewStatsDto::getUri));
+        for (String uri : uris) {
+            lastKnownStats.put(fallbackKey(start, end, uri, unique), byUri.getOrDefault(uri, List.of()));
+        }
+    }
+
+    private StatsResult lastKnown(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String uri : uris.stream().distinct().toList()) {
+            List<ViewStatsDto> known = lastKnownStats.getIfPresent(fallbackKey(start, end, uri, unique));
+            if (known != null) {
+                stats.addAll(known);
+            } else {
+                missing.add(uri);
+            }
+        }
+        stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return StatsResult.fallback(stats, missing);
+    }
+
+    private static List<Object> fallbackKey(LocalDateTime start, LocalDateTime end, String uri, Boolean unique) {
+        return List.of(uri, Boolean.TRUE.equals(unique), start, end);
+    }
+
+    @Override
+    public void destroy() {
+        if (hitBuffer != null) {
+            hitBuffer.close();
+        }
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        Gauge.builder("stats.client.breaker.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        FunctionCounter.builder("stats.client.breaker.rejected", circuitBreaker, CircuitBreaker::getRejected)
+                .description("Calls to stats-server refused while the circuit breaker was open")
+                .register(registry);
+        FunctionCounter.builder("stats.client.stats.fallbacks", fallbacks, AtomicLong::get)
+                .description("Stats lookups answered from last known values")
+                .register(registry);
+        if (hitBuffer == null) {
+            return;
+        }
+        FunctionCounter.builder("stats.client.hits.sent", hitBuffer, HitBuffer::getSent)
+                .description("Hits delivered to stats-server by the background sender")
+                .register(registry);
+        FunctionCounter.builder("stats.client.hits.dropped", hitBuffer, HitBuffer::getDropped)
+                .description("Hits lost because the buffer was full or delivery failed")
+                .register(registry);
+        Gauge.builder("stats.client.hits.queued", hitBuffer, HitBuffer::getQueued)
+                .description("Hits waiting in the buffer")
+                .register(registry);
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.explorewithme.client;
+
+import lombok.Value;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+
+import java.util.List;
+
+/**
+ * Stats returned by {@link StatsClient#getStats}. A fallback result holds the stats last received for the same
+ * request while stats-server could not answer; URIs never received for that request are listed as missing.
+ */
+@Value
+public class StatsResult {
+    List<ViewStatsDto> stats;
+    boolean fallback;
+    List<String> missingUris;
+
+    static StatsResult live(List<ViewStatsDto> stats) {
+        return new StatsResult(stats, false, List.of());
+    }
+
+    static StatsResult fallback(List<ViewStatsDto> stats, List<String> missingUris) {
+        return new StatsResult(List.copyOf(stats), true, List.copyOf(missingUris));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.explorewithme.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterFailureThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+        assertThat(breaker.tryAcquire(), equalTo(true));
+
+        breaker.onFailure();
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+        assertThat(breaker.tryAcquire(), equalTo(false));
+        assertThat(breaker.getRejected(), equalTo(1L));
+    }
+
+    @Test
+    void successResetsConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    void letsSingleTrialThroughOnceOpenDurationPassed() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+
+        assertThat(breaker.tryAcquire(), equalTo(true));
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.HALF_OPEN));
+        assertThat(breaker.tryAcquire(), equalTo(false));
+
+        breaker.onSuccess();
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+        assertThat(breaker.tryAcquire(), equalTo(true));
+    }
+
+    @Test
+    void failedTrialOpensAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 0);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onFailure();
+
+        assertThat(breaker.tryAcquire(), equalTo(true));
+        breaker.onFailure();
+
+        assertThat(breaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.explorewithme.client;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import ru.practicum.explorewithme.dto.EndpointHitDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
+
+class HitBufferTest {
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    void dropsHitsWhenFull() {
+        List<List<EndpointHitDto>> batches = new CopyOnWriteArrayList<>();
+        try (HitBuffer buffer = new HitBuffer(2, 100, NEVER, batches::add)) {
+            buffer.offer(hit(1));
+            buffer.offer(hit(2));
+            buffer.offer(hit(3));
+
+            assertThat(buffer.getQueued(), equalTo(2));
+            assertThat(buffer.getDropped(), equalTo(1L));
+            assertThat(batches, empty());
+        }
+    }
+
+    @Test
+    void sendsFullBatchBeforeFlushInterval() throws Exception {
+        BlockingQueue<List<EndpointHitDto>> batches = new LinkedBlockingQueue<>();
+        try (HitBuffer buffer = new HitBuffer(100, 3, NEVER, batch -> batches.add(List.copyOf(batch)))) {
+            buffer.offer(hit(1));
+            buffer.offer(hit(2));
+            buffer.offer(hit(3));
+
+            List<EndpointHitDto> batch = batches.poll(5, TimeUnit.SECONDS);
+            assertThat(batch, notNullValue());
+            assertThat(batch, hasSize(3));
+            assertThat(buffer.getQueued(), equalTo(0));
+        }
+    }
+
+    @Test
+    void sendsPartialBatchOnFlushInterval() throws Exception {
+        BlockingQueue<List<EndpointHitDto>> batches = new LinkedBlockingQueue<>();
+        try (HitBuffer buffer = new HitBuffer(100, 10, 50, batch -> batches.add(List.copyOf(batch)))) {
+            buffer.offer(hit(1));
+
+            List<EndpointHitDto> batch = batches.poll(5, TimeUnit.SECONDS);
+            assertThat(batch, notNullValue());
+            assertThat(batch, hasSize(1));
+        }
+    }
+
+    @Test
+    void closeDrainsQueuedHitsInBatches() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        HitBuffer buffer = new HitBuffer(100, 10, NEVER, batch -> batchSizes.add(batch.size()));
+        for (int i = 0; i < 25; i++) {
+            buffer.offer(hit(i));
+        }
+
+        buffer.close();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum(), equalTo(25));
+        assertThat(batchSizes.stream().allMatch(size -> size <= 10), equalTo(true));
+        assertThat(buffer.getSent(), equalTo(25L));
+        assertThat(buffer.getQueued(), equalTo(0));
+    }
+
+    @Test
+    void retriesFailedBatchOnNextFlush() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        BlockingQueue<List<EndpointHitDto>> batches = new LinkedBlockingQueue<>();
+        try (HitBuffer buffer = new HitBuffer(100, 10, 50, batch -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("stats-server is down");
+            }
+            batches.add(List.copyOf(batch));
+        })) {
+            buffer.offer(hit(1));
+            buffer.offer(hit(2));
+
+            List<EndpointHitDto> batch = batches.poll(5, TimeUnit.SECONDS);
+            assertThat(batch, notNullValue());
+            assertThat(batch, hasSize(2));
+            assertThat(buffer.getSent(), equalTo(2L));
+            assertThat(buffer.getDropped(), equalTo(0L));
+        }
+    }
+
+    @Test
+    void dropsOnlyFailedHitsThatDoNotFitBack() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        HitBuffer buffer = new HitBuffer(3, 2, NEVER, batch -> {
+            if (attempts.incrementAndGet() == 1) {
+                sending.countDown();
+                awaitQuietly(release);
+                throw new IllegalStateException("stats-server is down");
+            }
+        });
+        buffer.offer(hit(1));
+        buffer.offer(hit(2));
+        assertThat(sending.await(5, TimeUnit.SECONDS), equalTo(true));
+        buffer.offer(hit(3));
+        buffer.offer(hit(4));
+
+        release.countDown();
+        buffer.close();
+
+        assertThat(buffer.getSent(), equalTo(3L));
+        assertThat(buffer.getDropped(), equalTo(1L));
+    }
+
+    @Test
+    void dropsBatchRejectedByServer() {
+        AtomicInteger attempts = new AtomicInteger();
+        HitBuffer buffer = new HitBuffer(100, 10, NEVER, batch -> {
+            attempts.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        });
+        buffer.offer(hit(1));
+        buffer.offer(hit(2));
+
+        buffer.close();
+
+        assertThat(attempts.get(), equalTo(1));
+        assertThat(buffer.getDropped(), equalTo(2L));
+    }
+
+    @Test
+    void countsFailedBatchAsDropped() {
+        HitBuffer buffer = new HitBuffer(100, 10, NEVER, batch -> {
+            throw new IllegalStateException("stats-server is down");
+        });
+        buffer.offer(hit(1));
+        buffer.offer(hit(2));
+
+        buffer.close();
+
+        assertThat(buffer.getSent(), equalTo(0L));
+        assertThat(buffer.getDropped(), equalTo(2L));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static EndpointHitDto hit(int i) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/" + i)
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
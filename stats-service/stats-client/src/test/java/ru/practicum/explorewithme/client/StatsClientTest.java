@@ -0,0 +1,112 @@
+package ru.practicum.explorewithme.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.boot.test.web.client.MockServerRestTemplateCustomizer;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.practicum.explorewithme.dto.EndpointHitDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class StatsClientTest {
+    private static final String SERVER_URL = "http://stats-server:9090";
+
+    private MockRestServiceServer server;
+    private StatsClient statsClient;
+    private EndpointHitDto hit;
+
+    @BeforeEach
+    void setUp() {
+        MockServerRestTemplateCustomizer customizer = new MockServerRestTemplateCustomizer();
+        statsClient = new StatsClient(SERVER_URL, false, 100, 10, 1000, 50, Duration.ofSeconds(1),
+                Duration.ofSeconds(2), 1, 60_000, 100, new RestTemplateBuilder(customizer),
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        server = customizer.getServer();
+        hit = EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void clientErrorDoesNotOpenBreaker() {
+        server.expect(requestTo(SERVER_URL + "/hit")).andExpect(method(HttpMethod.POST))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST));
+        server.expect(requestTo(SERVER_URL + "/hit")).andExpect(method(HttpMethod.POST))
+                .andRespond(withSuccess());
+
+        assertThrows(HttpClientErrorException.class, () -> statsClient.saveHit(hit));
+        statsClient.saveHit(hit);
+
+        server.verify();
+    }
+
+    @Test
+    void serverErrorOpensBreaker() {
+        server.expect(requestTo(SERVER_URL + "/hit")).andExpect(method(HttpMethod.POST))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThrows(HttpServerErrorException.class, () -> statsClient.saveHit(hit));
+        assertThrows(ResourceAccessException.class, () -> statsClient.saveHit(hit));
+
+        server.verify();
+    }
+
+    @Test
+    void getStatsFallsBackToLastKnownStatsOfSameRequest() {
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 1, 1, 0, 0);
+        server.expect(requestTo(containsString("/stats?"))).andExpect(method(HttpMethod.GET))
+                .andRespond(withSuccess("[{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":7}]",
+                        MediaType.APPLICATION_JSON));
+        server.expect(requestTo(containsString("/stats?"))).andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        StatsResult live = statsClient.getStats(start, end, List.of("/events/1", "/events/2"), true);
+        StatsResult fallback = statsClient.getStats(start, end, List.of("/events/1", "/events/2"), true);
+        StatsResult otherRange = statsClient.getStats(start, end.plusDays(1), List.of("/events/1"), true);
+
+        assertThat(live.isFallback(), equalTo(false));
+        assertThat(live.getStats(), hasSize(1));
+        assertThat(fallback.isFallback(), equalTo(true));
+        assertThat(fallback.getStats(), equalTo(live.getStats()));
+        assertThat(fallback.getMissingUris(), empty());
+        assertThat(otherRange.isFallback(), equalTo(true));
+        assertThat(otherRange.getStats(), empty());
+        assertThat(otherRange.getMissingUris(), equalTo(List.of("/events/1")));
+        server.verify();
+    }
+
+    @Test
+    void getStatsWithoutUrisThrowsWhenServerFails() {
+        server.expect(requestTo(containsString("/stats?"))).andExpect(method(HttpMethod.GET))
+                .andRespond(withStatus(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThrows(HttpServerErrorException.class, () -> statsClient.getStats(LocalDateTime.now().minusDays(1),
+                LocalDateTime.now(), null, false));
+    }
+}
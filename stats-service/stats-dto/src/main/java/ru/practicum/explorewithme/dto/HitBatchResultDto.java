@@ -0,0 +1,14 @@
+package ru.practicum.explorewithme.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitBatchResultDto {
+    private Long accepted;
+}
@@ -1,10 +1,14 @@
 package ru.practicum.explorewithme.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -12,10 +16,15 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
+import ru.practicum.explorewithme.dto.HitBatchResultDto;
+import ru.practicum.explorewithme.dto.StatsQueryDto;
 import ru.practicum.explorewithme.dto.ViewStatsDto;
 import ru.practicum.explorewithme.service.StatsService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -24,6 +33,7 @@ import java.util.List;
 @Slf4j
 public class StatsController {
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/hit")
     @ResponseStatus(HttpStatus.CREATED)
@@ -32,17 +42,61 @@ public class StatsController {
         return statsService.saveHit(endpointHitDto);
     }
 
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public HitBatchResultDto saveHits(@RequestBody List<@Valid EndpointHitDto> endpointHitDtos) {
+        log.info("POST /hits size={}", endpointHitDtos.size());
+        return HitBatchResultDto.builder()
+                .accepted(statsService.saveHits(endpointHitDtos))
+                .build();
+    }
+
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") Boolean unique) {
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(required = false) @Positive Integer limit) {
+        validateRange(start, end);
+        log.info("GET /stats start={}, end={}, uris={}, unique={}, limit={}", start, end, uris, unique, limit);
+        return statsService.getStats(start, end, uris, unique, limit);
+    }
+
+    @PostMapping("/stats/query")
+    public List<ViewStatsDto> queryStats(@Valid @RequestBody StatsQueryDto query) {
+        validateRange(query.getStart(), query.getEnd());
+        log.info("POST /stats/query start={}, end={}, uriCount={}, unique={}, limit={}", query.getStart(), query.getEnd(),
+                query.getUris() == null ? 0 : query.getUris().size(), query.getUnique(), query.getLimit());
+        return statsService.getStats(query.getStart(), query.getEnd(), query.getUris(),
+                Boolean.TRUE.equals(query.getUnique()), query.getLimit());
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss") LocalDateTime end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") Boolean unique,
+            @RequestParam(required = false) @Positive Integer limit) {
+        validateRange(start, end);
+        log.info("GET /stats (stream) start={}, end={}, uris={}, unique={}, limit={}", start, end, uris, unique, limit);
+        StreamingResponseBody body = out -> statsService.streamStats(start, end, uris, unique, limit, stats -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(stats));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static void validateRange(LocalDateTime start, LocalDateTime end) {
         if (start.isAfter(end)) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "start must be before end");
         }
-        log.info("GET /stats start={}, end={}, uris={}, unique={}", start, end, uris, unique);
-        return statsService.getStats(start, end, uris, unique);
     }
 }
-
@@ -1,13 +1,20 @@
 package ru.practicum.explorewithme.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
 import ru.practicum.explorewithme.model.EndpointHit;
 
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface EndpointHitMapper {
     EndpointHitDto toDto(EndpointHit endpointHit);
 
+    @Mapping(target = "appId", ignore = true)
+    @Mapping(target = "uriId", ignore = true)
     EndpointHit toEntity(EndpointHitDto endpointHitDto);
+
+    List<EndpointHit> toEntities(List<EndpointHitDto> endpointHitDtos);
 }
 
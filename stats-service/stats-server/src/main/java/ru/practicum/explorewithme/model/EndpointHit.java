@@ -1,11 +1,13 @@
 package ru.practicum.explorewithme.model;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -26,13 +28,20 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "app", nullable = false, length = 255)
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
+
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
+
+    @Transient
     private String app;
 
-    @Column(name = "uri", nullable = false, length = 512)
+    @Transient
     private String uri;
 
-    @Column(name = "ip", nullable = false, length = 45)
+    @Convert(converter = IpAddressConverter.class)
+    @Column(name = "ip", nullable = false)
     private String ip;
 
     @Column(name = "timestamp", nullable = false)
@@ -0,0 +1,17 @@
+package ru.practicum.explorewithme.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+    @Override
+    public byte[] convertToDatabaseColumn(String ip) {
+        return ip == null ? null : IpAddresses.encode(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] address) {
+        return address == null ? null : IpAddresses.decode(address);
+    }
+}
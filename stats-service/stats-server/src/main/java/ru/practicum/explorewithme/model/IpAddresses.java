@@ -0,0 +1,54 @@
+package ru.practicum.explorewithme.model;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Converts IP address literals to their binary form: 4 bytes for IPv4, 16 bytes for IPv6.
+ * Never resolves host names.
+ */
+public final class IpAddresses {
+    private IpAddresses() {
+    }
+
+    public static byte[] encode(String ip) {
+        if (ip.indexOf(':') >= 0) {
+            if (!ip.chars().allMatch(c -> Character.digit(c, 16) >= 0 || c == ':' || c == '.')) {
+                throw new IllegalArgumentException("Invalid IP address: " + ip);
+            }
+            try {
+                return InetAddress.getByName(ip).getAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid IP address: " + ip, e);
+            }
+        }
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid IP address: " + ip);
+        }
+        byte[] address = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            if (parts[i].isEmpty() || parts[i].length() > 3 || !parts[i].chars().allMatch(Character::isDigit)) {
+                throw new IllegalArgumentException("Invalid IP address: " + ip);
+            }
+            int octet = Integer.parseInt(parts[i]);
+            if (octet > 255) {
+                throw new IllegalArgumentException("Invalid IP address: " + ip);
+            }
+            address[i] = (byte) octet;
+        }
+        return address;
+    }
+
+    public static String decode(byte[] address) {
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IP address length: " + address.length, e);
+        }
+    }
+
+    public static String canonical(String ip) {
+        return decode(encode(ip));
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.explorewithme.model;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+@RequiredArgsConstructor
+public enum RollupGranularity {
+    HOUR("endpoint_hits_hourly", ChronoUnit.HOURS),
+    DAY("endpoint_hits_daily", ChronoUnit.DAYS);
+
+    private final String table;
+    private final ChronoUnit unit;
+
+    public LocalDateTime bucketOf(LocalDateTime timestamp) {
+        return timestamp.truncatedTo(unit);
+    }
+}
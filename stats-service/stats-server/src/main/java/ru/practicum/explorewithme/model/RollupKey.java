@@ -0,0 +1,22 @@
+package ru.practicum.explorewithme.model;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Value
+public class RollupKey implements Comparable<RollupKey> {
+    private static final Comparator<RollupKey> ORDER = Comparator.comparing(RollupKey::getUri)
+            .thenComparing(RollupKey::getApp)
+            .thenComparing(RollupKey::getBucket);
+
+    String app;
+    String uri;
+    LocalDateTime bucket;
+
+    @Override
+    public int compareTo(RollupKey other) {
+        return ORDER.compare(this, other);
+    }
+}
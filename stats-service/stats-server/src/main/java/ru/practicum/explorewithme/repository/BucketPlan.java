@@ -0,0 +1,41 @@
+package ru.practicum.explorewithme.repository;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Splits an inclusive {@code [start, end]} range into the parts answered by each storage tier:
+ * raw hits in {@code [start, hourStart)}, hourly rollups in {@code [hourStart, dayStart)},
+ * daily rollups in {@code [dayStart, dayEnd)}, hourly rollups in {@code [dayEnd, hourEnd)}
+ * and raw hits again in {@code [hourEnd, end]}.
+ */
+@Value
+public class BucketPlan {
+    LocalDateTime start;
+    LocalDateTime hourStart;
+    LocalDateTime dayStart;
+    LocalDateTime dayEnd;
+    LocalDateTime hourEnd;
+    LocalDateTime end;
+
+    public static BucketPlan of(LocalDateTime start, LocalDateTime end) {
+        LocalDateTime hourStart = ceil(start, ChronoUnit.HOURS);
+        LocalDateTime hourEnd = end.truncatedTo(ChronoUnit.HOURS);
+        if (!hourStart.isBefore(hourEnd)) {
+            return new BucketPlan(start, start, start, start, start, end);
+        }
+        LocalDateTime dayStart = ceil(hourStart, ChronoUnit.DAYS);
+        LocalDateTime dayEnd = hourEnd.truncatedTo(ChronoUnit.DAYS);
+        if (!dayStart.isBefore(dayEnd)) {
+            return new BucketPlan(start, hourStart, hourEnd, hourEnd, hourEnd, end);
+        }
+        return new BucketPlan(start, hourStart, dayStart, dayEnd, hourEnd, end);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime timestamp, ChronoUnit unit) {
+        LocalDateTime truncated = timestamp.truncatedTo(unit);
+        return truncated.equals(timestamp) ? timestamp : truncated.plus(1, unit);
+    }
+}
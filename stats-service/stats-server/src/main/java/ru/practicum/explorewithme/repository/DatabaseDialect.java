@@ -0,0 +1,15 @@
+package ru.practicum.explorewithme.repository;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+
+public enum DatabaseDialect {
+    POSTGRESQL,
+    STANDARD;
+
+    public static DatabaseDialect detect(JdbcOperations jdbcOperations) {
+        String database = jdbcOperations
+                .execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(database) ? POSTGRESQL : STANDARD;
+    }
+}
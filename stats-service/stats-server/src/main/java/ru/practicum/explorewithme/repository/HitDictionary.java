@@ -0,0 +1,121 @@
+package ru.practicum.explorewithme.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Maps app names and URIs to the small integer ids stored in {@code endpoint_hits}.
+ * Ids never change once assigned, so they are cached for the lifetime of the process.
+ */
+@Repository
+public class HitDictionary {
+    private static final String POSTGRES_INSERT =
+            "INSERT INTO %1$s (%2$s) VALUES (:value) ON CONFLICT (%2$s) DO NOTHING";
+    private static final String MERGE_INSERT =
+            "MERGE INTO %1$s t USING (VALUES (:value)) AS s(v) ON t.%2$s = s.v " +
+            "WHEN NOT MATCHED THEN INSERT (%2$s) VALUES (s.v)";
+    private static final String FIND = "SELECT %2$s AS entry, id FROM %1$s WHERE %2$s IN (:values)";
+    private static final String ADD_LEGACY =
+            "INSERT INTO %1$s (%2$s) SELECT DISTINCT %3$s FROM endpoint_hits_legacy ON CONFLICT (%2$s) DO NOTHING";
+    private static final int CHUNK_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+    private final String insert;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    public HitDictionary(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgres = DatabaseDialect.detect(jdbcTemplate.getJdbcOperations()) == DatabaseDialect.POSTGRESQL;
+        this.insert = postgres ? POSTGRES_INSERT : MERGE_INSERT;
+    }
+
+    /**
+     * Sets app and URI ids on the hits, adding missing entries on the caller's connection and transaction.
+     */
+    public void encode(List<EndpointHit> hits) {
+        Map<String, Integer> apps = resolve("hit_apps", "name", appIds, hits, EndpointHit::getApp);
+        Map<String, Integer> uris = resolve("hit_uris", "uri", uriIds, hits, EndpointHit::getUri);
+        for (EndpointHit hit : hits) {
+            hit.setAppId(apps.get(hit.getApp()));
+            hit.setUriId(uris.get(hit.getUri()));
+        }
+    }
+
+    /**
+     * Adds the apps and URIs of hits still waiting in {@code endpoint_hits_legacy}, which exists on PostgreSQL only.
+     */
+    public void addLegacyEntries() {
+        jdbcTemplate.getJdbcOperations().update(String.format(ADD_LEGACY, "hit_apps", "name", "app"));
+        jdbcTemplate.getJdbcOperations().update(String.format(ADD_LEGACY, "hit_uris", "uri", "uri"));
+    }
+
+    private Map<String, Integer> resolve(String table, String column, Map<String, Integer> cache,
+                                         List<EndpointHit> hits, Function<EndpointHit, String> value) {
+        Map<String, Integer> ids = new HashMap<>();
+        // Sorted so that concurrent transactions adding the same values lock them in the same order
+        SortedSet<String> missing = new TreeSet<>();
+        for (EndpointHit hit : hits) {
+            String key = value.apply(hit);
+            Integer id = cache.get(key);
+            if (id != null) {
+                ids.put(key, id);
+            } else {
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        Map<String, Integer> added = new HashMap<>();
+        List<String> values = new ArrayList<>(missing);
+        for (int from = 0; from < values.size(); from += CHUNK_SIZE) {
+            List<String> chunk = values.subList(from, Math.min(from + CHUNK_SIZE, values.size()));
+            insert(String.format(insert, table, column), chunk);
+            jdbcTemplate.query(String.format(FIND, table, column), new MapSqlParameterSource("values", chunk),
+                    rs -> {
+                        added.put(rs.getString("entry"), rs.getInt("id"));
+                    });
+        }
+        ids.putAll(added);
+        cacheAfterCommit(cache, added);
+        return ids;
+    }
+
+    private void insert(String sql, List<String> values) {
+        if (postgres) {
+            jdbcTemplate.batchUpdate(sql, values.stream()
+                    .map(v -> new MapSqlParameterSource("value", v))
+                    .toArray(SqlParameterSource[]::new));
+            return;
+        }
+        // MERGE has no ON CONFLICT, so a value another transaction has just added fails here and is already there
+        for (String value : values) {
+            try {
+                jdbcTemplate.update(sql, new MapSqlParameterSource("value", value));
+            } catch (DuplicateKeyException e) {
+                // Already there
+            }
+        }
+    }
+
+    private static void cacheAfterCommit(Map<String, Integer> cache, Map<String, Integer> added) {
+        // A rolled back transaction may take new rows with it, so ids are only cached once they are committed
+        AfterCommit.runAfterCommit(() -> cache.putAll(added));
+    }
+}
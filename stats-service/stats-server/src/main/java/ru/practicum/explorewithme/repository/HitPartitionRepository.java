@@ -0,0 +1,140 @@
+package ru.practicum.explorewithme.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.model.EndpointHit;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maintains monthly range partitions of {@code endpoint_hits} on PostgreSQL.
+ * Partitions are named {@code endpoint_hits_pYYYYMM}; rows outside them land in {@code endpoint_hits_default}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String PREFIX = "endpoint_hits_p";
+    private static final String DEFAULT_PARTITION = "endpoint_hits_default";
+    private static final String LEGACY = "endpoint_hits_legacy";
+    private static final long LOCK_KEY = 0x656e64706f696e74L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void lock() {
+        jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(?)", Object.class, LOCK_KEY);
+    }
+
+    /**
+     * Whether {@code endpoint_hits} is already the partitioned table with dictionary-encoded columns.
+     */
+    public boolean isCurrentLayout() {
+        Integer matches = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM pg_class c " +
+                "JOIN pg_attribute a ON a.attrelid = c.oid " +
+                "WHERE c.oid = to_regclass('endpoint_hits') AND c.relkind = 'p' AND a.attname = 'app_id'", Integer.class);
+        return matches != null && matches > 0;
+    }
+
+    public void renameToLegacy() {
+        List<String> children = jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'endpoint_hits'::regclass", String.class);
+        for (String child : children) {
+            jdbcTemplate.execute("ALTER TABLE " + child + " RENAME TO " + child + "_legacy");
+        }
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits RENAME TO " + LEGACY);
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_timestamp RENAME TO idx_legacy_timestamp");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_app_uri RENAME TO idx_legacy_app_uri");
+        new ResourceDatabasePopulator(new ClassPathResource("schema-postgresql.sql"))
+                .execute(jdbcTemplate.getDataSource());
+    }
+
+    public Optional<YearMonth> findOldestLegacyMonth() {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM " + LEGACY, Timestamp.class);
+        return Optional.ofNullable(oldest).map(timestamp -> YearMonth.from(timestamp.toLocalDateTime()));
+    }
+
+    public boolean legacyExists() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass('" + LEGACY + "') IS NOT NULL", Boolean.class));
+    }
+
+    /**
+     * Returns up to {@code limit} not yet migrated hits with an id above {@code afterId}, in id order.
+     */
+    public List<EndpointHit> findLegacyHits(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT id, app, uri, ip, timestamp FROM " + LEGACY +
+                        " WHERE id > ? ORDER BY id LIMIT ?",
+                (rs, rowNum) -> EndpointHit.builder()
+                        .id(rs.getLong("id"))
+                        .app(rs.getString("app"))
+                        .uri(rs.getString("uri"))
+                        .ip(rs.getString("ip"))
+                        .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                        .build(),
+                afterId, limit);
+    }
+
+    public int deleteLegacyHits(List<Long> ids) {
+        return jdbcTemplate.update("DELETE FROM " + LEGACY + " WHERE id = ANY (?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids.toArray())));
+    }
+
+    public long countLegacyHits() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + LEGACY, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    public void dropLegacy() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + LEGACY + " CASCADE");
+    }
+
+    public void createDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF endpoint_hits DEFAULT");
+    }
+
+    public List<YearMonth> findPartitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname::text FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'endpoint_hits'::regclass AND c.relname LIKE '" + PREFIX + "%' " +
+                        "ORDER BY c.relname", String.class)
+                .stream()
+                .map(name -> YearMonth.parse(name.substring(PREFIX.length()), SUFFIX))
+                .toList();
+    }
+
+    /**
+     * Creates the partition for {@code month}, first moving any rows of that month out of the default partition,
+     * since PostgreSQL refuses to attach a range that the default partition already holds rows for.
+     */
+    public void createPartition(YearMonth month) {
+        String name = PREFIX + month.format(SUFFIX);
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE endpoint_hits INCLUDING DEFAULTS)");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                " WHERE timestamp >= ? AND timestamp < ? RETURNING *) " +
+                "INSERT INTO " + name + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits ATTACH PARTITION " + name +
+                " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    public void dropPartition(YearMonth month) {
+        String name = PREFIX + month.format(SUFFIX);
+        jdbcTemplate.execute("ALTER TABLE endpoint_hits DETACH PARTITION " + name);
+        jdbcTemplate.execute("DROP TABLE " + name);
+    }
+
+    public int deleteDefaultRowsBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?",
+                Timestamp.valueOf(cutoff));
+    }
+}
@@ -0,0 +1,135 @@
+package ru.practicum.explorewithme.repository;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.RollupGranularity;
+import ru.practicum.explorewithme.model.RollupKey;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+public class HitRollupRepository {
+    // Rows are keyed by dictionary ids, so names are resolved here and joined back in when reading
+    private static final String SOURCE =
+            "SELECT a.id AS app_id, u.id AS uri_id, CAST(:bucket AS timestamp) AS bucket, " +
+            "CAST(:hits AS bigint) AS hits FROM hit_apps a, hit_uris u WHERE a.name = :app AND u.uri = :uri";
+    private static final String POSTGRES_UPSERT =
+            "INSERT INTO %1$s (app_id, uri_id, bucket, hits) " + SOURCE + " " +
+            "ON CONFLICT (uri_id, app_id, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String MERGE_UPSERT =
+            "MERGE INTO %1$s t USING (" + SOURCE + ") s " +
+            "ON t.uri_id = s.uri_id AND t.app_id = s.app_id AND t.bucket = s.bucket " +
+            "WHEN MATCHED THEN UPDATE SET hits = t.hits + s.hits " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket, hits) VALUES (s.app_id, s.uri_id, s.bucket, s.hits)";
+    private static final String STATS =
+            "SELECT a.name AS app, u.uri AS uri, t.hits FROM (" +
+            "SELECT app_id, uri_id, SUM(hits) AS hits FROM (" +
+            "SELECT app_id, uri_id, COUNT(*) AS hits FROM endpoint_hits " +
+            "WHERE ((timestamp >= :start AND timestamp < :hourStart) " +
+            "OR (timestamp >= :hourEnd AND timestamp <= :end))%1$s " +
+            "GROUP BY app_id, uri_id " +
+            "UNION ALL " +
+            "SELECT app_id, uri_id, hits FROM endpoint_hits_hourly " +
+            "WHERE ((bucket >= :hourStart AND bucket < :dayStart) " +
+            "OR (bucket >= :dayEnd AND bucket < :hourEnd))%1$s " +
+            "UNION ALL " +
+            "SELECT app_id, uri_id, hits FROM endpoint_hits_daily " +
+            "WHERE bucket >= :dayStart AND bucket < :dayEnd%1$s" +
+            ") r GROUP BY app_id, uri_id" +
+            ") t JOIN hit_apps a ON a.id = t.app_id JOIN hit_uris u ON u.id = t.uri_id ORDER BY t.hits DESC";
+    private static final String BACKFILL =
+            "INSERT INTO %1$s (app_id, uri_id, bucket, hits) " +
+            "SELECT app_id, uri_id, bucket, SUM(hits) FROM (" +
+            "SELECT app_id, uri_id, date_trunc('%2$s', timestamp) AS bucket, COUNT(*) AS hits FROM endpoint_hits " +
+            "GROUP BY app_id, uri_id, date_trunc('%2$s', timestamp)%3$s" +
+            ") t GROUP BY app_id, uri_id, bucket";
+    private static final String LEGACY_BACKFILL =
+            " UNION ALL SELECT a.id, u.id, date_trunc('%1$s', l.timestamp), COUNT(*) " +
+            "FROM endpoint_hits_legacy l JOIN hit_apps a ON a.name = l.app JOIN hit_uris u ON u.uri = l.uri " +
+            "GROUP BY a.id, u.id, date_trunc('%1$s', l.timestamp)";
+    private static final String LIMIT = " FETCH FIRST :limit ROWS ONLY";
+    private static final String URI_ID_FILTER = " AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String upsert;
+
+    public HitRollupRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.upsert = DatabaseDialect.detect(jdbcTemplate.getJdbcOperations()) == DatabaseDialect.POSTGRESQL
+                ? POSTGRES_UPSERT
+                : MERGE_UPSERT;
+    }
+
+    public void add(RollupGranularity granularity, Map<RollupKey, Long> deltas) {
+        SqlParameterSource[] batch = deltas.entrySet().stream()
+                .map(delta -> new MapSqlParameterSource()
+                        .addValue("uri", delta.getKey().getUri())
+                        .addValue("app", delta.getKey().getApp())
+                        .addValue("bucket", Timestamp.valueOf(delta.getKey().getBucket()))
+                        .addValue("hits", delta.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(String.format(upsert, granularity.getTable()), batch);
+    }
+
+    public boolean isEmpty(RollupGranularity granularity) {
+        return jdbcTemplate.getJdbcOperations()
+                .queryForList("SELECT 1 FROM " + granularity.getTable() + " FETCH FIRST 1 ROWS ONLY")
+                .isEmpty();
+    }
+
+    /**
+     * Builds the rollup from raw hits, including those still waiting in {@code endpoint_hits_legacy}
+     * when {@code includeLegacy} is set, since moving them later does not touch the rollups. Legacy apps and URIs
+     * must already be in the dictionary.
+     */
+    public int backfill(RollupGranularity granularity, boolean includeLegacy) {
+        String unit = granularity.name().toLowerCase();
+        return jdbcTemplate.getJdbcOperations().update(String.format(BACKFILL, granularity.getTable(), unit,
+                includeLegacy ? String.format(LEGACY_BACKFILL, unit) : ""));
+    }
+
+    public List<ViewStatsDto> findStats(BucketPlan plan, List<String> uris) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        streamStats(plan, uris, null, () -> { }, stats::add);
+        return stats;
+    }
+
+    /**
+     * Streams totals in descending order of hits. {@code opened} runs once the query has been executed,
+     * before the first row is read.
+     */
+    public void streamStats(BucketPlan plan, List<String> uris, Integer limit, Runnable opened,
+                            Consumer<ViewStatsDto> consumer) {
+        boolean hasUris = uris != null && !uris.isEmpty();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(plan.getStart()))
+                .addValue("hourStart", Timestamp.valueOf(plan.getHourStart()))
+                .addValue("dayStart", Timestamp.valueOf(plan.getDayStart()))
+                .addValue("dayEnd", Timestamp.valueOf(plan.getDayEnd()))
+                .addValue("hourEnd", Timestamp.valueOf(plan.getHourEnd()))
+                .addValue("end", Timestamp.valueOf(plan.getEnd()));
+        if (hasUris) {
+            params.addValue("uris", uris);
+        }
+        String sql = String.format(STATS, hasUris ? URI_ID_FILTER : "");
+        if (limit != null) {
+            params.addValue("limit", limit);
+            sql += LIMIT;
+        }
+        jdbcTemplate.query(sql, params, (ResultSetExtractor<Void>) rs -> {
+            opened.run();
+            while (rs.next()) {
+                consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+            }
+            return null;
+        });
+    }
+}
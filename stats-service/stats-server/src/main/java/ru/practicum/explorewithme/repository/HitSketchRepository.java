@@ -0,0 +1,181 @@
+package ru.practicum.explorewithme.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.explorewithme.model.HyperLogLog;
+import ru.practicum.explorewithme.model.IpAddresses;
+import ru.practicum.explorewithme.model.RollupKey;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class HitSketchRepository {
+    // Rows are keyed by dictionary ids; subqueries keep FOR UPDATE from locking the dictionary rows as well
+    private static final String KEY = "app_id = (SELECT id FROM hit_apps WHERE name = :app) " +
+            "AND uri_id = (SELECT id FROM hit_uris WHERE uri = :uri) AND bucket = :bucket";
+    private static final String SOURCE =
+            "SELECT a.id AS app_id, u.id AS uri_id, CAST(:bucket AS timestamp) AS bucket " +
+            "FROM hit_apps a, hit_uris u WHERE a.name = :app AND u.uri = :uri";
+    private static final String POSTGRES_INSERT_IF_ABSENT =
+            "INSERT INTO endpoint_hits_sketches (app_id, uri_id, bucket, sketch) " +
+            "SELECT app_id, uri_id, bucket, :sketch FROM (" + SOURCE + ") s " +
+            "ON CONFLICT (uri_id, app_id, bucket) DO NOTHING";
+    private static final String MERGE_INSERT_IF_ABSENT =
+            "MERGE INTO endpoint_hits_sketches t USING (" + SOURCE + ") s " +
+            "ON t.uri_id = s.uri_id AND t.app_id = s.app_id AND t.bucket = s.bucket " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket, sketch) " +
+            "VALUES (s.app_id, s.uri_id, s.bucket, :sketch)";
+    private static final String FIND = "SELECT sketch FROM endpoint_hits_sketches WHERE " + KEY;
+    private static final String UPDATE = "UPDATE endpoint_hits_sketches SET sketch = :sketch WHERE " + KEY;
+    private static final String SKETCHES =
+            "SELECT a.name AS app, u.uri AS uri, s.sketch FROM endpoint_hits_sketches s " +
+            "JOIN hit_apps a ON a.id = s.app_id JOIN hit_uris u ON u.id = s.uri_id " +
+            "WHERE s.bucket >= :from AND s.bucket < :to";
+    private static final String EDGE_IPS =
+            "SELECT a.name AS app, u.uri AS uri, e.ip FROM (" +
+            "SELECT DISTINCT app_id, uri_id, ip FROM endpoint_hits " +
+            "WHERE ((timestamp >= :start AND timestamp < :dayStart) OR (timestamp >= :dayEnd AND timestamp <= :end))%s" +
+            ") e JOIN hit_apps a ON a.id = e.app_id JOIN hit_uris u ON u.id = e.uri_id";
+    private static final String DAILY_IPS =
+            "SELECT u.uri AS uri, a.name AS app, e.bucket, e.ip FROM (" +
+            "SELECT DISTINCT app_id, uri_id, date_trunc('day', timestamp) AS bucket, ip FROM endpoint_hits" +
+            ") e JOIN hit_apps a ON a.id = e.app_id JOIN hit_uris u ON u.id = e.uri_id " +
+            "ORDER BY u.uri, a.name, e.bucket";
+    private static final String LEGACY_DAILY_IPS =
+            "SELECT DISTINCT uri, app, date_trunc('day', timestamp) AS bucket, ip FROM endpoint_hits_legacy " +
+            "ORDER BY uri, app, bucket";
+    private static final String URI_ID_FILTER = " AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))";
+    private static final int FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String insertIfAbsent;
+
+    public HitSketchRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertIfAbsent = DatabaseDialect.detect(jdbcTemplate.getJdbcOperations()) == DatabaseDialect.POSTGRESQL
+                ? POSTGRES_INSERT_IF_ABSENT
+                : MERGE_INSERT_IF_ABSENT;
+    }
+
+    public Optional<HyperLogLog> find(RollupKey key) {
+        return jdbcTemplate.query(FIND, keyParams(key), (rs, rowNum) -> HyperLogLog.fromBytes(rs.getBytes("sketch")))
+                .stream()
+                .findFirst();
+    }
+
+    public HyperLogLog findForUpdate(RollupKey key) {
+        return jdbcTemplate.queryForObject(FIND + " FOR UPDATE", keyParams(key),
+                (rs, rowNum) -> HyperLogLog.fromBytes(rs.getBytes("sketch")));
+    }
+
+    public boolean insertIfAbsent(RollupKey key, HyperLogLog sketch) {
+        return jdbcTemplate.update(insertIfAbsent, keyParams(key).addValue("sketch", sketch.toBytes())) > 0;
+    }
+
+    public void update(RollupKey key, HyperLogLog sketch) {
+        jdbcTemplate.update(UPDATE, keyParams(key).addValue("sketch", sketch.toBytes()));
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.getJdbcOperations()
+                .queryForList("SELECT 1 FROM endpoint_hits_sketches FETCH FIRST 1 ROWS ONLY")
+                .isEmpty();
+    }
+
+    public boolean hasHits(boolean includeLegacy) {
+        return !jdbcTemplate.getJdbcOperations()
+                .queryForList("SELECT 1 FROM endpoint_hits FETCH FIRST 1 ROWS ONLY")
+                .isEmpty()
+                || includeLegacy && !jdbcTemplate.getJdbcOperations()
+                .queryForList("SELECT 1 FROM endpoint_hits_legacy FETCH FIRST 1 ROWS ONLY")
+                .isEmpty();
+    }
+
+    public void forEachSketch(LocalDateTime from, LocalDateTime to, List<String> uris, RowHandler<HyperLogLog> handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        jdbcTemplate.query(withUriFilter(SKETCHES, params, uris), params, rs -> {
+            handler.handle(rs.getString("app"), rs.getString("uri"), HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+    }
+
+    public void forEachEdgeIp(BucketPlan plan, List<String> uris, RowHandler<String> handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(plan.getStart()))
+                .addValue("dayStart", Timestamp.valueOf(plan.getDayStart()))
+                .addValue("dayEnd", Timestamp.valueOf(plan.getDayEnd()))
+                .addValue("end", Timestamp.valueOf(plan.getEnd()));
+        boolean hasUris = uris != null && !uris.isEmpty();
+        if (hasUris) {
+            params.addValue("uris", uris);
+        }
+        jdbcTemplate.query(String.format(EDGE_IPS, hasUris ? URI_ID_FILTER : ""), params, rs -> {
+            handler.handle(rs.getString("app"), rs.getString("uri"), IpAddresses.decode(rs.getBytes("ip")));
+        });
+    }
+
+    /**
+     * Streams the distinct IPs per (uri, app, day) from raw hits in that order, followed by those of hits still
+     * in {@code endpoint_hits_legacy} when {@code includeLegacy} is set. Legacy addresses that cannot be parsed
+     * are left out, since those rows are never moved to the new layout.
+     */
+    public void forEachDailyIp(boolean includeLegacy, DailyIpHandler handler) {
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DAILY_IPS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            RollupKey key = new RollupKey(rs.getString("app"), rs.getString("uri"),
+                    rs.getTimestamp("bucket").toLocalDateTime());
+            handler.handle(key, IpAddresses.decode(rs.getBytes("ip")));
+        });
+        if (!includeLegacy) {
+            return;
+        }
+        jdbcTemplate.getJdbcOperations().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LEGACY_DAILY_IPS);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            String ip;
+            try {
+                ip = IpAddresses.canonical(rs.getString("ip"));
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            handler.handle(new RollupKey(rs.getString("app"), rs.getString("uri"),
+                    rs.getTimestamp("bucket").toLocalDateTime()), ip);
+        });
+    }
+
+    private static String withUriFilter(String sql, MapSqlParameterSource params, List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return sql;
+        }
+        params.addValue("uris", uris);
+        return sql + URI_ID_FILTER;
+    }
+
+    private static MapSqlParameterSource keyParams(RollupKey key) {
+        return new MapSqlParameterSource()
+                .addValue("uri", key.getUri())
+                .addValue("app", key.getApp())
+                .addValue("bucket", Timestamp.valueOf(key.getBucket()));
+    }
+
+    @FunctionalInterface
+    public interface RowHandler<T> {
+        void handle(String app, String uri, T value);
+    }
+
+    @FunctionalInterface
+    public interface DailyIpHandler {
+        void handle(RollupKey key, String ip);
+    }
+}
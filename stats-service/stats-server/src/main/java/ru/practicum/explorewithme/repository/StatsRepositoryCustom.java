@@ -0,0 +1,17 @@
+package ru.practicum.explorewithme.repository;
+
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface StatsRepositoryCustom {
+    int insertBatch(List<EndpointHit> hits);
+
+    List<ViewStatsDto> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    void streamUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit,
+                           Consumer<ViewStatsDto> consumer);
+}
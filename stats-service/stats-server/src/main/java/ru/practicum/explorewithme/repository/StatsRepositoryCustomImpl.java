@@ -0,0 +1,76 @@
+package ru.practicum.explorewithme.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.model.IpAddresses;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class StatsRepositoryCustomImpl implements StatsRepositoryCustom {
+    private static final String INSERT_HIT =
+            "INSERT INTO endpoint_hits (app_id, uri_id, ip, timestamp) VALUES (?, ?, ?, ?)";
+    private static final String UNIQUE_STATS =
+            "SELECT a.name AS app, u.uri AS uri, s.hits FROM (" +
+            "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM endpoint_hits " +
+            "WHERE timestamp BETWEEN :start AND :end%s " +
+            "GROUP BY app_id, uri_id" +
+            ") s JOIN hit_apps a ON a.id = s.app_id JOIN hit_uris u ON u.id = s.uri_id " +
+            "ORDER BY s.hits DESC";
+    private static final String URI_FILTER = " AND uri_id IN (SELECT id FROM hit_uris WHERE uri IN (:uris))";
+    private static final String LIMIT = " FETCH FIRST :limit ROWS ONLY";
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Override
+    public int insertBatch(List<EndpointHit> hits) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_HIT, hits, BATCH_SIZE, (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setBytes(3, IpAddresses.encode(hit.getIp()));
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+        return Arrays.stream(counts)
+                .flatMapToInt(Arrays::stream)
+                .map(count -> count < 0 ? 1 : count)
+                .sum();
+    }
+
+    @Override
+    public List<ViewStatsDto> findUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<ViewStatsDto> stats = new ArrayList<>();
+        streamUniqueStats(start, end, uris, null, stats::add);
+        return stats;
+    }
+
+    @Override
+    public void streamUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris, Integer limit,
+                                  Consumer<ViewStatsDto> consumer) {
+        boolean hasUris = uris != null && !uris.isEmpty();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("start", Timestamp.valueOf(start))
+                .addValue("end", Timestamp.valueOf(end));
+        if (hasUris) {
+            params.addValue("uris", uris);
+        }
+        String sql = String.format(UNIQUE_STATS, hasUris ? URI_FILTER : "");
+        if (limit != null) {
+            params.addValue("limit", limit);
+            sql += LIMIT;
+        }
+        namedJdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+        });
+    }
+}
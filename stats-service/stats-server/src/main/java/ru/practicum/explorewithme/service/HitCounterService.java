@@ -0,0 +1,262 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.model.RollupGranularity;
+import ru.practicum.explorewithme.model.RollupKey;
+import ru.practicum.explorewithme.repository.AfterCommit;
+import ru.practicum.explorewithme.repository.BucketPlan;
+import ru.practicum.explorewithme.repository.HitRollupRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Counts hits per (app, uri, hour) in memory and periodically adds them to the hourly and daily rollups.
+ * Reads combine persisted rollups with the counts not yet flushed, so totals stay exact.
+ */
+@Service
+@Slf4j
+public class HitCounterService implements InitializingBean, DisposableBean {
+    private final HitRollupRepository rollupRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final HitPartitionService partitionService;
+    // Guards swapping the pending map so that no increment lands in a map that is already being flushed
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Guards committing a flush so that readers never see flushed counts both in the rollups and in memory
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private volatile Map<RollupKey, LongAdder> pending = new ConcurrentHashMap<>();
+    private volatile Map<RollupKey, LongAdder> flushing = Map.of();
+
+    public HitCounterService(HitRollupRepository rollupRepository, PlatformTransactionManager transactionManager,
+                             HitPartitionService partitionService) {
+        this.rollupRepository = rollupRepository;
+        this.transactionManager = transactionManager;
+        this.partitionService = partitionService;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        boolean includeLegacy = partitionService.hasLegacyHits();
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                if (rollupRepository.isEmpty(granularity)) {
+                    log.info("Built {} {} rollup rows from existing hits",
+                            rollupRepository.backfill(granularity, includeLegacy), granularity);
+                }
+            }
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        transactionManager.commit(status);
+    }
+
+    public void add(List<EndpointHit> hits) {
+        AfterCommit.runAfterCommit(() -> increment(hits));
+    }
+
+    public List<ViewStatsDto> findStats(BucketPlan plan, List<String> uris, Supplier<List<ViewStatsDto>> persisted) {
+        flushLock.readLock().lock();
+        try {
+            Map<List<String>, Long> totals = new LinkedHashMap<>();
+            for (ViewStatsDto stats : persisted.get()) {
+                totals.put(List.of(stats.getApp(), stats.getUri()), stats.getHits());
+            }
+            addUnflushed(totals, flushing, plan, uris);
+            addUnflushed(totals, pending, plan, uris);
+
+            List<ViewStatsDto> stats = new ArrayList<>(totals.size());
+            totals.forEach((key, hits) -> stats.add(new ViewStatsDto(key.get(0), key.get(1), hits)));
+            stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+            return stats;
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams the same totals as {@link #findStats} in descending order of hits without loading them all.
+     * Only keys with unflushed counts can move relative to the order of the persisted rollups, so their totals
+     * are read up front and merged into the stream. The flush lock is held until the streaming query has been
+     * executed, which fixes the database snapshot it reads.
+     */
+    public void streamStats(BucketPlan plan, List<String> uris, Integer limit, Consumer<ViewStatsDto> consumer) {
+        Lock lock = flushLock.readLock();
+        lock.lock();
+        AtomicBoolean locked = new AtomicBoolean(true);
+        Runnable unlock = () -> {
+            if (locked.compareAndSet(true, false)) {
+                lock.unlock();
+            }
+        };
+        try {
+            Map<List<String>, Long> unflushed = new HashMap<>();
+            addUnflushed(unflushed, flushing, plan, uris);
+            addUnflushed(unflushed, pending, plan, uris);
+            Map<List<String>, Long> adjusted = new HashMap<>(unflushed);
+            if (!unflushed.isEmpty()) {
+                List<String> unflushedUris = unflushed.keySet().stream().map(key -> key.get(1)).distinct().toList();
+                for (ViewStatsDto stats : rollupRepository.findStats(plan, unflushedUris)) {
+                    List<String> key = List.of(stats.getApp(), stats.getUri());
+                    if (unflushed.containsKey(key)) {
+                        adjusted.merge(key, stats.getHits(), Long::sum);
+                    }
+                }
+            }
+            PriorityQueue<ViewStatsDto> merged = new PriorityQueue<>(
+                    Comparator.comparing(ViewStatsDto::getHits).reversed());
+            adjusted.forEach((key, hits) -> merged.add(new ViewStatsDto(key.get(0), key.get(1), hits)));
+
+            LimitedConsumer out = new LimitedConsumer(limit, consumer);
+            // Every adjusted key may be skipped below, so that many extra rows keep the limit exact
+            Integer rows = limit == null ? null : limit + adjusted.size();
+            rollupRepository.streamStats(plan, uris, rows, unlock, stats -> {
+                if (adjusted.containsKey(List.of(stats.getApp(), stats.getUri()))) {
+                    return;
+                }
+                while (!merged.isEmpty() && merged.peek().getHits() >= stats.getHits()) {
+                    out.accept(merged.poll());
+                }
+                out.accept(stats);
+            });
+            while (!merged.isEmpty()) {
+                out.accept(merged.poll());
+            }
+        } finally {
+            unlock.run();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        flushLock.writeLock().lock();
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+            flushLock.writeLock().unlock();
+        }
+
+        Map<RollupKey, Long> hourly = new TreeMap<>();
+        flushing.forEach((key, counter) -> hourly.put(key, counter.sum()));
+        Map<RollupKey, Long> daily = new TreeMap<>();
+        hourly.forEach((key, hits) -> daily.merge(new RollupKey(key.getApp(), key.getUri(),
+                RollupGranularity.DAY.bucketOf(key.getBucket())), hits, Long::sum));
+
+        TransactionStatus status = transactionManager.getTransaction(
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        try {
+            rollupRepository.add(RollupGranularity.HOUR, hourly);
+            rollupRepository.add(RollupGranularity.DAY, daily);
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            restore();
+            throw e;
+        }
+        flushLock.writeLock().lock();
+        try {
+            transactionManager.commit(status);
+            flushing = Map.of();
+        } catch (RuntimeException e) {
+            restore();
+            throw e;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        log.debug("Flushed {} hourly hit counters", hourly.size());
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private void increment(List<EndpointHit> hits) {
+        swapLock.readLock().lock();
+        try {
+            for (EndpointHit hit : hits) {
+                RollupKey key = new RollupKey(hit.getApp(), hit.getUri(),
+                        RollupGranularity.HOUR.bucketOf(hit.getTimestamp()));
+                pending.computeIfAbsent(key, k -> new LongAdder()).increment();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void restore() {
+        flushLock.writeLock().lock();
+        swapLock.readLock().lock();
+        try {
+            flushing.forEach((key, counter) ->
+                    pending.computeIfAbsent(key, k -> new LongAdder()).add(counter.sum()));
+            flushing = Map.of();
+        } finally {
+            swapLock.readLock().unlock();
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private static class LimitedConsumer implements Consumer<ViewStatsDto> {
+        private final Integer limit;
+        private final Consumer<ViewStatsDto> consumer;
+        private int count;
+
+        LimitedConsumer(Integer limit, Consumer<ViewStatsDto> consumer) {
+            this.limit = limit;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(ViewStatsDto stats) {
+            if (limit == null || count < limit) {
+                consumer.accept(stats);
+                count++;
+            }
+        }
+    }
+
+    private static void addUnflushed(Map<List<String>, Long> totals, Map<RollupKey, LongAdder> counters,
+                                     BucketPlan plan, List<String> uris) {
+        boolean hasUris = uris != null && !uris.isEmpty();
+        counters.forEach((key, counter) -> {
+            if (key.getBucket().isBefore(plan.getHourStart()) || !key.getBucket().isBefore(plan.getHourEnd())) {
+                return;
+            }
+            if (hasUris && !uris.contains(key.getUri())) {
+                return;
+            }
+            totals.merge(List.of(key.getApp(), key.getUri()), counter.sum(), Long::sum);
+        });
+    }
+}
@@ -0,0 +1,231 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.model.IpAddresses;
+import ru.practicum.explorewithme.repository.DatabaseDialect;
+import ru.practicum.explorewithme.repository.HitDictionary;
+import ru.practicum.explorewithme.repository.HitPartitionRepository;
+import ru.practicum.explorewithme.repository.StatsRepository;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps monthly partitions of {@code endpoint_hits} on PostgreSQL. A table in an older layout is renamed to
+ * {@code endpoint_hits_legacy} at startup, and its rows are moved over in the background afterwards. Rows whose
+ * IP cannot be parsed are kept there, and the table is only dropped once nothing is left in it.
+ */
+@Service
+@Slf4j
+public class HitPartitionService implements InitializingBean, DisposableBean {
+    private final HitPartitionRepository partitionRepository;
+    private final HitDictionary hitDictionary;
+    private final StatsRepository statsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean postgres;
+    private final boolean enabled;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final int migrationBatchSize;
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "legacy-hit-migration");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public HitPartitionService(HitPartitionRepository partitionRepository,
+                               HitDictionary hitDictionary,
+                               StatsRepository statsRepository,
+                               TransactionTemplate transactionTemplate,
+                               JdbcTemplate jdbcTemplate,
+                               @Value("${stats.partitions.enabled:true}") boolean enabled,
+                               @Value("${stats.partitions.premake-months:2}") int premakeMonths,
+                               @Value("${stats.partitions.retention-months:0}") int retentionMonths,
+                               @Value("${stats.partitions.migration-batch-size:1000}") int migrationBatchSize) {
+        this.partitionRepository = partitionRepository;
+        this.hitDictionary = hitDictionary;
+        this.statsRepository = statsRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.postgres = DatabaseDialect.detect(jdbcTemplate) == DatabaseDialect.POSTGRESQL;
+        this.enabled = enabled;
+        this.premakeMonths = premakeMonths;
+        this.retentionMonths = retentionMonths;
+        this.migrationBatchSize = migrationBatchSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (postgres) {
+            transactionTemplate.executeWithoutResult(status -> {
+                partitionRepository.lock();
+                if (!partitionRepository.isCurrentLayout()) {
+                    convertLegacyTable();
+                }
+                partitionRepository.createDefaultPartition();
+                if (partitionRepository.legacyExists()) {
+                    // Rollups and sketches built from legacy hits refer to their apps and URIs by id
+                    hitDictionary.addLegacyEntries();
+                }
+            });
+        }
+        maintain();
+    }
+
+    /**
+     * Whether rows of an older layout are still waiting in {@code endpoint_hits_legacy}.
+     */
+    public boolean hasLegacyHits() {
+        return postgres && partitionRepository.legacyExists();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startLegacyMigration() {
+        if (hasLegacyHits()) {
+            migrationExecutor.execute(this::migrateLegacyHits);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        migrationExecutor.shutdownNow();
+    }
+
+    @Scheduled(cron = "${stats.partitions.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!postgres || !enabled) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            partitionRepository.lock();
+            YearMonth current = YearMonth.now();
+            createPartitions(current, current.plusMonths(premakeMonths));
+            dropExpired(current);
+        });
+    }
+
+    private void convertLegacyTable() {
+        log.info("Converting endpoint_hits to the partitioned, dictionary-encoded layout");
+        partitionRepository.renameToLegacy();
+        partitionRepository.createDefaultPartition();
+        if (enabled) {
+            YearMonth current = YearMonth.now();
+            createPartitions(partitionRepository.findOldestLegacyMonth().orElse(current), current);
+        }
+    }
+
+    /**
+     * Moves legacy rows in batches, each committed on its own, so an interrupted migration resumes
+     * with the rows that are left.
+     */
+    private void migrateLegacyHits() {
+        log.info("Moving hits from endpoint_hits_legacy to the new layout");
+        long afterId = 0;
+        long moved = 0;
+        long skipped = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long from = afterId;
+                MigratedBatch batch = transactionTemplate.execute(status -> {
+                    partitionRepository.lock();
+                    return migrateBatch(from);
+                });
+                if (batch == null || batch.lastId == null) {
+                    break;
+                }
+                afterId = batch.lastId;
+                moved += batch.moved;
+                skipped += batch.skipped;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Stopped after moving {} legacy hits; the rest is moved on the next start", moved);
+                return;
+            }
+            Long kept = transactionTemplate.execute(status -> {
+                partitionRepository.lock();
+                long left = partitionRepository.legacyExists() ? partitionRepository.countLegacyHits() : 0;
+                if (left == 0) {
+                    partitionRepository.dropLegacy();
+                }
+                return left;
+            });
+            if (kept != null && kept > 0) {
+                log.warn("Kept {} hits with an invalid IP in endpoint_hits_legacy; the table is dropped once they " +
+                        "are fixed or removed and the service restarts", kept);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed moving legacy hits after {}; the rest is moved on the next start", moved, e);
+            return;
+        }
+        log.info("Moved {} hits to the new endpoint_hits layout, left {} with an invalid IP", moved, skipped);
+    }
+
+    private MigratedBatch migrateBatch(long afterId) {
+        // Another instance may have finished the migration while this one waited for the lock
+        List<EndpointHit> hits = partitionRepository.legacyExists()
+                ? partitionRepository.findLegacyHits(afterId, migrationBatchSize)
+                : List.of();
+        if (hits.isEmpty()) {
+            return new MigratedBatch(null, 0, 0);
+        }
+        List<EndpointHit> valid = new ArrayList<>(hits.size());
+        for (EndpointHit hit : hits) {
+            try {
+                IpAddresses.encode(hit.getIp());
+                valid.add(hit);
+            } catch (IllegalArgumentException e) {
+                // The column used to be free text; such rows stay in the legacy table rather than being lost
+            }
+        }
+        int moved = 0;
+        if (!valid.isEmpty()) {
+            hitDictionary.encode(valid);
+            moved = statsRepository.insertBatch(valid);
+            partitionRepository.deleteLegacyHits(valid.stream().map(EndpointHit::getId).toList());
+        }
+        return new MigratedBatch(hits.get(hits.size() - 1).getId(), moved, hits.size() - valid.size());
+    }
+
+    private void createPartitions(YearMonth from, YearMonth to) {
+        List<YearMonth> existing = partitionRepository.findPartitions();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            if (!existing.contains(month)) {
+                partitionRepository.createPartition(month);
+                log.info("Created endpoint_hits partition for {}", month);
+            }
+        }
+    }
+
+    private void dropExpired(YearMonth current) {
+        if (retentionMonths <= 0) {
+            return;
+        }
+        YearMonth cutoff = current.minusMonths(retentionMonths);
+        for (YearMonth month : partitionRepository.findPartitions()) {
+            if (month.isBefore(cutoff)) {
+                partitionRepository.dropPartition(month);
+                log.info("Dropped expired endpoint_hits partition for {}", month);
+            }
+        }
+        partitionRepository.deleteDefaultRowsBefore(cutoff.atDay(1).atStartOfDay());
+    }
+
+    @lombok.Value
+    private static class MigratedBatch {
+        Long lastId;
+        int moved;
+        int skipped;
+    }
+}
@@ -0,0 +1,242 @@
+package ru.practicum.explorewithme.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.model.HyperLogLog;
+import ru.practicum.explorewithme.model.IpAddresses;
+import ru.practicum.explorewithme.model.RollupGranularity;
+import ru.practicum.explorewithme.model.RollupKey;
+import ru.practicum.explorewithme.repository.AfterCommit;
+import ru.practicum.explorewithme.repository.BucketPlan;
+import ru.practicum.explorewithme.repository.HitSketchRepository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps a HyperLogLog sketch of visitor IPs per (app, uri, day). Committed hits are sketched in memory and
+ * periodically merged into the stored sketches, so ingest never locks a sketch row. Reads merge in the sketches
+ * not yet flushed.
+ */
+@Service
+@Slf4j
+public class SketchService implements InitializingBean, DisposableBean {
+    private final HitSketchRepository sketchRepository;
+    private final HitPartitionService partitionService;
+    private final TransactionTemplate transactionTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final int precision;
+    // Guards swapping the pending map so that no IP lands in a map that is already being flushed
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Guards committing a flush so that readers see flushed sketches either in the table or in memory
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    // Sketches are mutable, so they are only touched inside compute() of the map holding them
+    private volatile Map<RollupKey, HyperLogLog> pending = new ConcurrentHashMap<>();
+    private volatile Map<RollupKey, HyperLogLog> flushing = Map.of();
+
+    public SketchService(HitSketchRepository sketchRepository,
+                         HitPartitionService partitionService,
+                         TransactionTemplate transactionTemplate,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${stats.unique.sketch-precision:12}") int precision) {
+        if (precision < HyperLogLog.MIN_PRECISION || precision > HyperLogLog.MAX_PRECISION) {
+            throw new IllegalArgumentException("stats.unique.sketch-precision must be between " +
+                    HyperLogLog.MIN_PRECISION + " and " + HyperLogLog.MAX_PRECISION + ": " + precision);
+        }
+        this.sketchRepository = sketchRepository;
+        this.partitionService = partitionService;
+        this.transactionTemplate = transactionTemplate;
+        this.transactionManager = transactionManager;
+        this.precision = precision;
+    }
+
+    public void add(List<EndpointHit> hits) {
+        AfterCommit.runAfterCommit(() -> sketch(hits));
+    }
+
+    public List<ViewStatsDto> getUniqueStats(BucketPlan plan, List<String> uris) {
+        Map<String, Map<String, HyperLogLog>> sketches = new HashMap<>();
+        flushLock.readLock().lock();
+        try {
+            sketchRepository.forEachSketch(plan.getDayStart(), plan.getDayEnd(), uris, (app, uri, sketch) ->
+                    sketches.computeIfAbsent(app, a -> new HashMap<>()).merge(uri, sketch, HyperLogLog::merge));
+            addUnflushed(sketches, flushing, plan, uris);
+            addUnflushed(sketches, pending, plan, uris);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        sketchRepository.forEachEdgeIp(plan, uris, (app, uri, ip) ->
+                sketches.computeIfAbsent(app, a -> new HashMap<>())
+                        .computeIfAbsent(uri, u -> new HyperLogLog(precision))
+                        .add(ip));
+
+        List<ViewStatsDto> stats = new ArrayList<>();
+        sketches.forEach((app, byUri) -> byUri.forEach((uri, sketch) ->
+                stats.add(new ViewStatsDto(app, uri, sketch.estimate()))));
+        stats.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return stats;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.unique.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        flushLock.writeLock().lock();
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+            flushLock.writeLock().unlock();
+        }
+
+        // Sorted so that instances flushing the same sketches lock their rows in the same order
+        Map<RollupKey, HyperLogLog> deltas = new TreeMap<>(flushing);
+        TransactionStatus status = transactionManager.getTransaction(
+                new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        try {
+            deltas.forEach(this::addToSketch);
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            restore();
+            throw e;
+        }
+        flushLock.writeLock().lock();
+        try {
+            transactionManager.commit(status);
+            flushing = Map.of();
+        } catch (RuntimeException e) {
+            restore();
+            throw e;
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        log.debug("Flushed {} unique visitor sketches", deltas.size());
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        boolean includeLegacy = partitionService.hasLegacyHits();
+        if (!sketchRepository.isEmpty() || !sketchRepository.hasHits(includeLegacy)) {
+            return;
+        }
+        log.info("Building unique visitor sketches from existing hits");
+        SketchBuilder builder = new SketchBuilder();
+        transactionTemplate.executeWithoutResult(status -> {
+            sketchRepository.forEachDailyIp(includeLegacy, builder);
+            builder.finish();
+        });
+        log.info("Built {} unique visitor sketches", builder.built);
+    }
+
+    private void sketch(List<EndpointHit> hits) {
+        swapLock.readLock().lock();
+        try {
+            for (EndpointHit hit : hits) {
+                RollupKey key = new RollupKey(hit.getApp(), hit.getUri(),
+                        RollupGranularity.DAY.bucketOf(hit.getTimestamp()));
+                // Raw hits keep only the binary address, so sketch the form it decodes back to
+                String ip = IpAddresses.canonical(hit.getIp());
+                pending.compute(key, (k, sketch) -> {
+                    HyperLogLog target = sketch == null ? new HyperLogLog(precision) : sketch;
+                    target.add(ip);
+                    return target;
+                });
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void restore() {
+        flushLock.writeLock().lock();
+        swapLock.readLock().lock();
+        try {
+            flushing.forEach((key, sketch) -> pending.compute(key, (k, current) ->
+                    (current == null ? new HyperLogLog(precision) : current).merge(sketch)));
+            flushing = Map.of();
+        } finally {
+            swapLock.readLock().unlock();
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void addUnflushed(Map<String, Map<String, HyperLogLog>> sketches, Map<RollupKey, HyperLogLog> unflushed,
+                              BucketPlan plan, List<String> uris) {
+        boolean hasUris = uris != null && !uris.isEmpty();
+        for (RollupKey key : unflushed.keySet()) {
+            if (key.getBucket().isBefore(plan.getDayStart()) || !key.getBucket().isBefore(plan.getDayEnd())) {
+                continue;
+            }
+            if (hasUris && !uris.contains(key.getUri())) {
+                continue;
+            }
+            HyperLogLog target = sketches.computeIfAbsent(key.getApp(), a -> new HashMap<>())
+                    .computeIfAbsent(key.getUri(), u -> new HyperLogLog(precision));
+            unflushed.computeIfPresent(key, (k, sketch) -> {
+                target.merge(sketch);
+                return sketch;
+            });
+        }
+    }
+
+    private void addToSketch(RollupKey key, HyperLogLog delta) {
+        HyperLogLog stored = sketchRepository.find(key).orElse(null);
+        if (stored != null && stored.covers(delta)) {
+            return;
+        }
+        if (stored == null && sketchRepository.insertIfAbsent(key, delta)) {
+            return;
+        }
+        sketchRepository.update(key, sketchRepository.findForUpdate(key).merge(delta));
+    }
+
+    private class SketchBuilder implements HitSketchRepository.DailyIpHandler {
+        private RollupKey key;
+        private HyperLogLog sketch;
+        private long built;
+
+        @Override
+        public void handle(RollupKey rowKey, String ip) {
+            if (!rowKey.equals(key)) {
+                finish();
+                key = rowKey;
+                sketch = new HyperLogLog(precision);
+            }
+            sketch.add(ip);
+        }
+
+        void finish() {
+            if (key != null) {
+                addToSketch(key, sketch);
+                built++;
+                key = null;
+            }
+        }
+    }
+}
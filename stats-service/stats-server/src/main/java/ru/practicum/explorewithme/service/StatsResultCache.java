@@ -0,0 +1,130 @@
+package ru.practicum.explorewithme.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.repository.AfterCommit;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Caches /stats results. Every entry is keyed by the version of the URIs it covers, which is bumped
+ * whenever a hit for such a URI is committed, so an outdated entry is never served again and simply ages out.
+ * Versions are stamps of a single counter and are dropped once no live entry can refer to them; a dropped version
+ * comes back with a newer stamp, so it only causes a miss.
+ * Queries without URIs cover every hit, so a version would change with each of them; they are kept in a separate
+ * cache with a short time to live instead.
+ */
+@Service
+public class StatsResultCache {
+    private final boolean enabled;
+    private final long endGranularitySeconds;
+    private final Cache<VersionedQuery, List<ViewStatsDto>> cache;
+    private final Cache<Query, List<ViewStatsDto>> allUrisCache;
+    private final Cache<String, Long> uriVersions;
+    private final AtomicLong versionClock = new AtomicLong();
+
+    public StatsResultCache(@Value("${stats.cache.enabled:true}") boolean enabled,
+                            @Value("${stats.cache.max-size:10000}") long maxSize,
+                            @Value("${stats.cache.expire-after-write:5m}") Duration expireAfterWrite,
+                            @Value("${stats.cache.all-uris-expire-after-write:5s}") Duration allUrisExpireAfterWrite,
+                            @Value("${stats.cache.end-granularity:1m}") Duration endGranularity,
+                            @Value("${stats.cache.max-uri-versions:100000}") long maxUriVersions,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.endGranularitySeconds = endGranularity.getSeconds();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.allUrisCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(allUrisExpireAfterWrite)
+                .recordStats()
+                .build();
+        // Entries are written with versions read no later than their write, so they expire before those versions do
+        this.uriVersions = Caffeine.newBuilder()
+                .maximumSize(maxUriVersions)
+                .expireAfterAccess(expireAfterWrite)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> {
+            CaffeineCacheMetrics.monitor(registry, cache, "stats.results");
+            CaffeineCacheMetrics.monitor(registry, allUrisCache, "stats.results.all-uris");
+            CaffeineCacheMetrics.monitor(registry, uriVersions, "stats.results.uri-versions");
+        });
+    }
+
+    public List<ViewStatsDto> get(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique,
+                                  Integer limit, Function<Query, List<ViewStatsDto>> loader) {
+        if (!enabled) {
+            return loader.apply(new Query(start, end, uris, unique, limit));
+        }
+        List<String> normalizedUris = uris == null ? List.of() : uris.stream().distinct().sorted().toList();
+        Query query = new Query(start, snap(end), normalizedUris, unique, limit);
+        if (normalizedUris.isEmpty()) {
+            return allUrisCache.get(query, key -> List.copyOf(loader.apply(query)));
+        }
+        return cache.get(new VersionedQuery(query, version(normalizedUris)), key -> List.copyOf(loader.apply(query)));
+    }
+
+    public void invalidate(List<EndpointHit> hits) {
+        AfterCommit.runAfterCommit(() -> bumpVersions(hits));
+    }
+
+    private void bumpVersions(List<EndpointHit> hits) {
+        hits.stream()
+                .map(EndpointHit::getUri)
+                .distinct()
+                .forEach(uri -> uriVersions.put(uri, versionClock.incrementAndGet()));
+    }
+
+    private long version(List<String> uris) {
+        // Versions only grow, so the sum changes whenever any of them does
+        long version = 0;
+        for (String uri : uris) {
+            version += uriVersions.get(uri, u -> versionClock.incrementAndGet());
+        }
+        return version;
+    }
+
+    /**
+     * Rounds an end in the future up to the configured granularity. Two ends in the future can only
+     * disagree about hits stamped in the future, which the ingest path does not normally produce.
+     */
+    private LocalDateTime snap(LocalDateTime end) {
+        if (endGranularitySeconds <= 0 || !end.isAfter(LocalDateTime.now())) {
+            return end;
+        }
+        long seconds = end.toEpochSecond(ZoneOffset.UTC) + (end.getNano() > 0 ? 1 : 0);
+        long snapped = Math.floorDiv(seconds + endGranularitySeconds - 1, endGranularitySeconds) * endGranularitySeconds;
+        return LocalDateTime.ofEpochSecond(snapped, 0, ZoneOffset.UTC);
+    }
+
+    @lombok.Value
+    public static class Query {
+        LocalDateTime start;
+        LocalDateTime end;
+        List<String> uris;
+        boolean unique;
+        Integer limit;
+    }
+
+    @lombok.Value
+    private static class VersionedQuery {
+        Query query;
+        long version;
+    }
+}
@@ -2,16 +2,24 @@ package ru.practicum.explorewithme.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
 import ru.practicum.explorewithme.dto.ViewStatsDto;
 import ru.practicum.explorewithme.mapper.EndpointHitMapper;
 import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.model.IpAddresses;
+import ru.practicum.explorewithme.repository.BucketPlan;
+import ru.practicum.explorewithme.repository.HitDictionary;
+import ru.practicum.explorewithme.repository.HitRollupRepository;
 import ru.practicum.explorewithme.repository.StatsRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -19,29 +27,88 @@ import java.util.List;
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
     private final StatsRepository statsRepository;
+    private final HitDictionary hitDictionary;
+    private final HitRollupRepository rollupRepository;
+    private final HitCounterService hitCounterService;
+    private final StatsResultCache resultCache;
+    private final SketchService sketchService;
     private final EndpointHitMapper mapper;
 
+    @Value("${stats.unique.exact:false}")
+    private boolean exactUnique;
+
     @Override
     @Transactional
     public EndpointHitDto saveHit(EndpointHitDto endpointHitDto) {
         EndpointHit endpointHit = mapper.toEntity(endpointHitDto);
+        encode(List.of(endpointHit));
         EndpointHit saved = statsRepository.save(endpointHit);
+        hitCounterService.add(List.of(saved));
+        sketchService.add(List.of(saved));
+        resultCache.invalidate(List.of(saved));
         log.info("Saved hit: {}", saved);
         return mapper.toDto(saved);
     }
 
     @Override
-    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique) {
-        boolean hasUris = uris != null && !uris.isEmpty();
-        if (Boolean.TRUE.equals(unique)) {
-            return hasUris
-                    ? statsRepository.findStatsUniqueByUris(start, end, uris)
-                    : statsRepository.findStatsUniqueAll(start, end);
+    @Transactional
+    public long saveHits(List<EndpointHitDto> endpointHitDtos) {
+        List<EndpointHit> hits = mapper.toEntities(endpointHitDtos);
+        encode(hits);
+        int saved = statsRepository.insertBatch(hits);
+        hitCounterService.add(hits);
+        sketchService.add(hits);
+        resultCache.invalidate(hits);
+        log.info("Saved {} hits in batch", saved);
+        return saved;
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique,
+                                       Integer limit) {
+        return resultCache.get(start, end, uris, Boolean.TRUE.equals(unique), limit, query -> {
+            List<ViewStatsDto> stats = findStats(query.getStart(), query.getEnd(), query.getUris(), query.isUnique());
+            return query.getLimit() != null && query.getLimit() < stats.size()
+                    ? stats.subList(0, query.getLimit())
+                    : stats;
+        });
+    }
+
+    @Override
+    public void streamStats(LocalDateTime start, LocalDateTime end, List<String> uris, Boolean unique, Integer limit,
+                            Consumer<ViewStatsDto> consumer) {
+        if (!Boolean.TRUE.equals(unique)) {
+            hitCounterService.streamStats(BucketPlan.of(start, end), uris, limit, consumer);
+        } else if (exactUnique) {
+            statsRepository.streamUniqueStats(start, end, uris, limit, consumer);
         } else {
-            return hasUris
-                    ? statsRepository.findStatsByUris(start, end, uris)
-                    : statsRepository.findStatsAll(start, end);
+            // Sketches have to be merged per group before they can be estimated, so this mode cannot stream;
+            // it still answers with the same estimates as the JSON form
+            List<ViewStatsDto> stats = sketchService.getUniqueStats(BucketPlan.of(start, end), uris);
+            stats.stream().limit(limit == null ? Long.MAX_VALUE : limit).forEach(consumer);
+        }
+    }
+
+    private List<ViewStatsDto> findStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        if (unique) {
+            if (!exactUnique) {
+                return sketchService.getUniqueStats(BucketPlan.of(start, end), uris);
+            }
+            return statsRepository.findUniqueStats(start, end, uris);
+        } else {
+            BucketPlan plan = BucketPlan.of(start, end);
+            return hitCounterService.findStats(plan, uris, () -> rollupRepository.findStats(plan, uris));
         }
     }
-}
 
+    private void encode(List<EndpointHit> hits) {
+        for (EndpointHit hit : hits) {
+            try {
+                IpAddresses.encode(hit.getIp());
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        }
+        hitDictionary.encode(hits);
+    }
+}
@@ -0,0 +1,50 @@
+create table if not exists hit_apps
+(
+    id   integer generated by default as identity primary key,
+    name varchar(255) not null unique
+);
+
+create table if not exists hit_uris
+(
+    id  integer generated by default as identity primary key,
+    uri varchar(512) not null unique
+);
+
+create sequence if not exists endpoint_hits_seq;
+
+create table if not exists endpoint_hits
+(
+    id        bigint    not null default nextval('endpoint_hits_seq'),
+    app_id    integer   not null,
+    uri_id    integer   not null,
+    ip        bytea     not null,
+    timestamp timestamp not null,
+    primary key (id, timestamp)
+) partition by range (timestamp);
+
+create index if not exists idx_timestamp on endpoint_hits (timestamp);
+create index if not exists idx_app_uri on endpoint_hits (app_id, uri_id);
+
+-- Rollups and sketches used to be keyed by app name and URI; converts tables of that layout to dictionary ids
+do '
+declare
+    rollup text;
+begin
+    foreach rollup in array array[''endpoint_hits_hourly'', ''endpoint_hits_daily'', ''endpoint_hits_sketches''] loop
+        if exists (select 1
+                   from information_schema.columns
+                   where table_schema = current_schema()
+                     and table_name = rollup
+                     and column_name = ''app'') then
+            execute format(''insert into hit_apps (name) select distinct app from %I on conflict (name) do nothing'',
+                           rollup);
+            execute format(''insert into hit_uris (uri) select distinct uri from %I on conflict (uri) do nothing'',
+                           rollup);
+            execute format(''alter table %I add column app_id integer, add column uri_id integer'', rollup);
+            execute format(''update %I r set app_id = a.id, uri_id = u.id from hit_apps a, hit_uris u '' ||
+                               ''where a.name = r.app and u.uri = r.uri'', rollup);
+            execute format(''alter table %I drop column uri, drop column app, alter column app_id set not null, '' ||
+                               ''alter column uri_id set not null, add primary key (uri_id, app_id, bucket)'', rollup);
+        end if;
+    end loop;
+end';
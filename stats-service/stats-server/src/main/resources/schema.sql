@@ -1,12 +1,56 @@
+create table if not exists hit_apps
+(
+    id   integer generated by default as identity primary key,
+    name varchar(255) not null unique
+);
+
+create table if not exists hit_uris
+(
+    id  integer generated by default as identity primary key,
+    uri varchar(512) not null unique
+);
+
 create table if not exists endpoint_hits
 (
     id        bigint generated by default as identity primary key,
-    app       varchar(255) not null,
-    uri       varchar(512) not null,
-    ip        varchar(45)  not null,
-    timestamp timestamp    not null
+    app_id    integer   not null,
+    uri_id    integer   not null,
+    ip        bytea     not null,
+    timestamp timestamp not null
 );
 
 create index if not exists idx_timestamp on endpoint_hits (timestamp);
-create index if not exists idx_app_uri on endpoint_hits (app, uri);
+create index if not exists idx_app_uri on endpoint_hits (app_id, uri_id);
+
+
+create table if not exists endpoint_hits_hourly
+(
+    app_id integer   not null,
+    uri_id integer   not null,
+    bucket timestamp not null,
+    hits   bigint    not null,
+    primary key (uri_id, app_id, bucket)
+);
+
+create table if not exists endpoint_hits_daily
+(
+    app_id integer   not null,
+    uri_id integer   not null,
+    bucket timestamp not null,
+    hits   bigint    not null,
+    primary key (uri_id, app_id, bucket)
+);
+
+create index if not exists idx_hourly_bucket on endpoint_hits_hourly (bucket);
+create index if not exists idx_daily_bucket on endpoint_hits_daily (bucket);
+
+create table if not exists endpoint_hits_sketches
+(
+    app_id integer   not null,
+    uri_id integer   not null,
+    bucket timestamp not null,
+    sketch bytea     not null,
+    primary key (uri_id, app_id, bucket)
+);
 
+create index if not exists idx_sketches_bucket on endpoint_hits_sketches (bucket);
@@ -9,14 +9,22 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
+import ru.practicum.explorewithme.dto.StatsQueryDto;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -57,6 +65,48 @@ class StatsControllerTest {
                 .andExpect(jsonPath("$.ip").value("192.168.1.1"));
     }
 
+    @Test
+    void saveHits() throws Exception {
+        EndpointHitDto otherHit = EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/2")
+                .ip("192.168.1.2")
+                .timestamp(now)
+                .build();
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(hitDto, otherHit))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(2));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", now.minusHours(1).format(FORMATTER))
+                        .param("end", now.plusHours(1).format(FORMATTER)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+    }
+
+    @Test
+    void saveHitsRejectsInvalidHit() throws Exception {
+        hitDto.setIp(null);
+
+        mockMvc.perform(post("/hits")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(hitDto))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void saveHitRejectsInvalidIp() throws Exception {
+        hitDto.setIp("not-an-ip");
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(hitDto)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getStats() throws Exception {
         mockMvc.perform(post("/hit")
@@ -73,5 +123,64 @@ class StatsControllerTest {
                 .andExpect(jsonPath("$[0].uri").value("/events/1"))
                 .andExpect(jsonPath("$[0].hits").value(1));
     }
-}
 
+    @Test
+    void queryStatsWithUriListInBody() throws Exception {
+        mockMvc.perform(post("/hit")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(hitDto)));
+
+        List<String> uris = IntStream.rangeClosed(1, 1000)
+                .mapToObj(id -> "/events/" + id)
+                .collect(Collectors.toList());
+        StatsQueryDto query = StatsQueryDto.builder()
+                .start(now.minusHours(1))
+                .end(now.plusHours(1))
+                .uris(uris)
+                .unique(true)
+                .build();
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(query)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].hits").value(1));
+    }
+
+    @Test
+    void getStatsStreamsNdjsonWithLimit() throws Exception {
+        EndpointHitDto otherHit = EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/2")
+                .ip("192.168.1.2")
+                .timestamp(now)
+                .build();
+        mockMvc.perform(post("/hits")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(hitDto, hitDto, otherHit))));
+
+        MvcResult result = mockMvc.perform(get("/stats")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("start", now.minusHours(1).format(FORMATTER))
+                        .param("end", now.plusHours(1).format(FORMATTER))
+                        .param("limit", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"app\":\"ewm-main-service\",\"uri\":\"/events/1\",\"hits\":2}\n"));
+    }
+
+    @Test
+    void getStatsRejectsNonPositiveLimit() throws Exception {
+        mockMvc.perform(get("/stats")
+                        .param("start", now.minusHours(1).format(FORMATTER))
+                        .param("end", now.plusHours(1).format(FORMATTER))
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.explorewithme;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.model.EndpointHit;
+import ru.practicum.explorewithme.service.StatsResultCache;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+class StatsResultCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    private final AtomicLong loads = new AtomicLong();
+
+    @Test
+    void entryIsReusedUntilHitForItsUri() {
+        StatsResultCache cache = cache(100);
+
+        get(cache, "/events/1");
+        get(cache, "/events/1");
+        cache.invalidate(List.of(hit("/events/2")));
+        get(cache, "/events/1");
+        assertThat(loads.get(), equalTo(1L));
+
+        cache.invalidate(List.of(hit("/events/1")));
+        get(cache, "/events/1");
+        assertThat(loads.get(), equalTo(2L));
+    }
+
+    @Test
+    void hitIsNeverMissedOnceVersionsAreDropped() {
+        StatsResultCache cache = cache(1);
+
+        for (int i = 0; i < 100; i++) {
+            get(cache, "/events/1");
+            cache.invalidate(List.of(hit("/events/" + (i + 2))));
+            long loaded = loads.get();
+            cache.invalidate(List.of(hit("/events/1")));
+            get(cache, "/events/1");
+            assertThat(loads.get(), equalTo(loaded + 1));
+        }
+    }
+
+    private StatsResultCache cache(long maxUriVersions) {
+        return new StatsResultCache(true, 1000, Duration.ofMinutes(5), Duration.ofSeconds(5), Duration.ofMinutes(1),
+                maxUriVersions, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    private void get(StatsResultCache cache, String uri) {
+        cache.get(START, END, List.of(uri), false, null, query -> {
+            loads.incrementAndGet();
+            return List.of(new ViewStatsDto("ewm-main-service", uri, loads.get()));
+        });
+    }
+
+    private static EndpointHit hit(String uri) {
+        return EndpointHit.builder().app("ewm-main-service").uri(uri).ip("192.168.1.1").timestamp(START).build();
+    }
+}
@@ -7,14 +7,26 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import ru.practicum.explorewithme.dto.EndpointHitDto;
 import ru.practicum.explorewithme.dto.ViewStatsDto;
+import ru.practicum.explorewithme.service.HitCounterService;
+import ru.practicum.explorewithme.service.SketchService;
 import ru.practicum.explorewithme.service.StatsService;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 @SpringBootTest
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
@@ -23,6 +35,12 @@ class StatsServiceImplTest {
     @Autowired
     private StatsService statsService;
 
+    @Autowired
+    private HitCounterService hitCounterService;
+
+    @Autowired
+    private SketchService sketchService;
+
     private EndpointHitDto hitDto;
     private LocalDateTime now;
 
@@ -46,6 +64,54 @@ class StatsServiceImplTest {
         assertThat(saved.getIp(), equalTo(hitDto.getIp()));
     }
 
+    @Test
+    void saveHits() {
+        EndpointHitDto otherHit = EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.2")
+                .timestamp(now)
+                .build();
+
+        long accepted = statsService.saveHits(List.of(hitDto, otherHit, hitDto));
+        assertThat(accepted, equalTo(3L));
+
+        List<ViewStatsDto> stats = statsService.getStats(
+                now.minusHours(1),
+                now.plusHours(1),
+                List.of("/events/1"),
+                true
+        );
+        assertThat(stats.get(0).getHits(), equalTo(2L));
+    }
+
+    @Test
+    void saveHitsConcurrentlyWithNewUris() throws Exception {
+        // More concurrent ingests of unseen URIs than the pool has connections
+        int threads = 24;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                String uri = "/events/new-" + i;
+                results.add(executor.submit(() -> statsService.saveHits(List.of(
+                        EndpointHitDto.builder().app("ewm-main-service").uri(uri).ip("192.168.1.1").timestamp(now)
+                                .build(),
+                        EndpointHitDto.builder().app("ewm-main-service").uri("/events/shared").ip("192.168.1.1")
+                                .timestamp(now).build()))));
+            }
+            for (Future<Long> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS), equalTo(2L));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<ViewStatsDto> stats = statsService.getStats(now.minusHours(1), now.plusHours(1),
+                List.of("/events/shared"), false);
+        assertThat(stats.get(0).getHits(), equalTo((long) threads));
+    }
+
     @Test
     void getStats() {
         statsService.saveHit(hitDto);
@@ -63,6 +129,152 @@ class StatsServiceImplTest {
         assertThat(stats.get(0).getHits(), equalTo(1L));
     }
 
+    @Test
+    void getStatsAcrossRollupBuckets() {
+        List<EndpointHitDto> hits = Stream.of(50, 26, 2, 0)
+                .map(hoursAgo -> EndpointHitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/1")
+                        .ip("192.168.1.1")
+                        .timestamp(now.minusHours(hoursAgo))
+                        .build())
+                .collect(Collectors.toList());
+        statsService.saveHits(hits);
+
+        List<ViewStatsDto> all = statsService.getStats(
+                now.minusDays(3).plusMinutes(17),
+                now.plusHours(1),
+                List.of("/events/1"),
+                false
+        );
+        assertThat(all.get(0).getHits(), equalTo(4L));
+
+        List<ViewStatsDto> window = statsService.getStats(
+                now.minusHours(27),
+                now.minusHours(1),
+                List.of("/events/1"),
+                false
+        );
+        assertThat(window.get(0).getHits(), equalTo(2L));
+
+        List<ViewStatsDto> narrow = statsService.getStats(
+                now.minusHours(50).minusMinutes(1),
+                now.minusHours(50).plusMinutes(1),
+                null,
+                false
+        );
+        assertThat(narrow.get(0).getHits(), equalTo(1L));
+    }
+
+    @Test
+    void getStatsAfterCounterFlush() {
+        List<EndpointHitDto> hits = Stream.of(30, 5, 5, 0)
+                .map(hoursAgo -> EndpointHitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/1")
+                        .ip("192.168.1.1")
+                        .timestamp(now.minusHours(hoursAgo))
+                        .build())
+                .collect(Collectors.toList());
+        statsService.saveHits(hits);
+
+        LocalDateTime start = now.minusDays(2);
+        LocalDateTime end = now.plusHours(1);
+        List<ViewStatsDto> beforeFlush = statsService.getStats(start, end, List.of("/events/1"), false);
+        hitCounterService.flush();
+        statsService.saveHit(hitDto);
+        List<ViewStatsDto> afterFlush = statsService.getStats(start, end, List.of("/events/1"), false);
+
+        assertThat(beforeFlush.get(0).getHits(), equalTo(4L));
+        assertThat(afterFlush.get(0).getHits(), equalTo(5L));
+    }
+
+    @Test
+    void streamStatsMergesUnflushedCounts() {
+        Stream.of("/events/1", "/events/1", "/events/1", "/events/2", "/events/2")
+                .forEach(uri -> statsService.saveHit(hit(uri)));
+        hitCounterService.flush();
+        Stream.of("/events/2", "/events/2", "/events/3")
+                .forEach(uri -> statsService.saveHit(hit(uri)));
+
+        List<ViewStatsDto> streamed = new ArrayList<>();
+        statsService.streamStats(now.minusHours(1), now.plusHours(1), null, false, 2, streamed::add);
+
+        assertThat(streamed.stream().map(ViewStatsDto::getUri).collect(Collectors.toList()),
+                equalTo(List.of("/events/2", "/events/1")));
+        assertThat(streamed.get(0).getHits(), equalTo(4L));
+        assertThat(streamed.get(1).getHits(), equalTo(3L));
+    }
+
+    @Test
+    void getStatsRefreshesCachedResultAfterHit() {
+        LocalDateTime end = now.plusMinutes(5).truncatedTo(ChronoUnit.MINUTES).plusSeconds(10);
+        statsService.saveHit(hitDto);
+        List<ViewStatsDto> first = statsService.getStats(now.minusHours(1), end, List.of("/events/1"), true);
+        List<ViewStatsDto> cached = statsService.getStats(now.minusHours(1), end.plusSeconds(20),
+                List.of("/events/1", "/events/1"), true);
+
+        hitDto.setIp("192.168.1.2");
+        statsService.saveHit(hitDto);
+        List<ViewStatsDto> refreshed = statsService.getStats(now.minusHours(1), end, List.of("/events/1"), true);
+
+        assertThat(first.get(0).getHits(), equalTo(1L));
+        assertThat(cached, sameInstance(first));
+        assertThat(refreshed.get(0).getHits(), equalTo(2L));
+    }
+
+    @Test
+    void getStatsUniqueEstimate() {
+        List<EndpointHitDto> hits = Stream.iterate(0, i -> i + 1)
+                .limit(3000)
+                .map(i -> EndpointHitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/1")
+                        .ip("10.0." + (i % 1000) / 256 + "." + (i % 1000) % 256)
+                        .timestamp(now.minusHours(i % 72))
+                        .build())
+                .collect(Collectors.toList());
+        statsService.saveHits(hits);
+
+        List<ViewStatsDto> stats = statsService.getStats(
+                now.minusDays(4),
+                now.plusHours(1),
+                List.of("/events/1"),
+                true
+        );
+        assertThat(stats.get(0).getHits().doubleValue(), closeTo(1000.0, 50.0));
+    }
+
+    @Test
+    void getStatsUniqueAfterSketchFlush() {
+        List<EndpointHitDto> hits = Stream.of("10.0.0.1", "10.0.0.2", "10.0.0.3", "10.0.0.1")
+                .map(ip -> EndpointHitDto.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/1")
+                        .ip(ip)
+                        .timestamp(now.minusDays(3))
+                        .build())
+                .collect(Collectors.toList());
+        statsService.saveHits(hits);
+
+        LocalDateTime start = now.minusDays(5);
+        LocalDateTime end = now.plusHours(1);
+        List<ViewStatsDto> beforeFlush = statsService.getStats(start, end, List.of("/events/1"), true);
+        sketchService.flush();
+        hits.get(0).setIp("10.0.0.4");
+        hits.get(1).setTimestamp(now.minusDays(2));
+        statsService.saveHits(hits.subList(0, 2));
+        List<ViewStatsDto> afterFlush = statsService.getStats(start, end, List.of("/events/1"), true);
+        sketchService.flush();
+        hits.get(2).setIp("10.0.0.5");
+        statsService.saveHit(hits.get(2));
+        List<ViewStatsDto> afterSecondFlush = statsService.getStats(start, end, List.of("/events/1"), true);
+
+        assertThat(beforeFlush.get(0).getHits(), equalTo(3L));
+        assertThat(afterFlush.get(0).getHits(), equalTo(4L));
+        assertThat(afterSecondFlush.get(0).getHits(), equalTo(5L));
+    }
+
     @Test
     void getStatsUnique() {
         statsService.saveHit(hitDto);
@@ -84,5 +296,13 @@ class StatsServiceImplTest {
         );
         assertThat(statsUnique.get(0).getHits(), equalTo(1L));
     }
-}
 
+    private EndpointHitDto hit(String uri) {
+        return EndpointHitDto.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.1.1")
+                .timestamp(now)
+                .build();
+    }
+}